@@ -0,0 +1,345 @@
+package com.bank.cache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Size-bounded, thread-safe cache with per-entry TTL
+ * Entries are spread over independently locked LRU segments, concurrent misses
+ * on the same key share a single load, and hit/miss/eviction counters are kept
+ * for monitoring. Null values are never cached.
+ *
+ * An optional tagger labels each value (e.g. with the account ids it contains)
+ * so writers can evict exactly the entries a change affects via invalidateTag.
+ */
+public class BoundedCache<K, V> {
+
+    private static final int SEGMENTS = 16;
+    private static final int TAG_STRIPES = 64;
+
+    private final String name;
+    private final int maximumSize;
+    private final long ttlNanos;
+    private final Segment<K, V>[] segments;
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Function<? super V, ? extends Collection<?>> tagger;
+    private final ConcurrentHashMap<Object, Set<K>> keysByTag = new ConcurrentHashMap<>();
+    // Bumped on every tag invalidation so loads that raced with a write are not cached
+    private final AtomicLongArray tagEpochs = new AtomicLongArray(TAG_STRIPES);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder coalescedLoads = new LongAdder();
+    private final LongAdder tagInvalidations = new LongAdder();
+
+    public BoundedCache(String name, int maximumSize, Duration ttl) {
+        this(name, maximumSize, ttl, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public BoundedCache(String name, int maximumSize, Duration ttl,
+                        Function<? super V, ? extends Collection<?>> tagger) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.name = name;
+        this.maximumSize = maximumSize;
+        this.ttlNanos = ttl.toNanos();
+        this.tagger = tagger;
+        int perSegment = Math.max(1, (maximumSize + SEGMENTS - 1) / SEGMENTS);
+        this.segments = (Segment<K, V>[]) new Segment<?, ?>[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment<>(perSegment, this::onEvicted);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the cached value, or null when absent or expired
+     */
+    public V get(K key) {
+        V value = peek(key);
+        if (value != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        if (value != null) {
+            insert(key, value, null);
+        }
+    }
+
+    /**
+     * Returns the cached value or loads it; concurrent callers missing on the
+     * same key wait for the one load in progress instead of starting their own
+     */
+    public V getOrLoad(K key, Function<? super K, ? extends V> loader) {
+        V cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalescedLoads.increment();
+            return await(existing);
+        }
+
+        try {
+            // Another thread may have finished loading between our miss and taking the flight
+            V value = peek(key);
+            if (value == null) {
+                long[] epochs = snapshotTagEpochs();
+                loads.increment();
+                value = loader.apply(key);
+                if (value != null) {
+                    insert(key, value, epochs);
+                }
+            }
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            loadFailures.increment();
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    public void invalidate(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Entry<V> removed = segment.remove(key);
+            if (removed != null) {
+                untag(key, removed);
+            }
+        }
+    }
+
+    /**
+     * Evicts every entry whose value was labelled with the given tag
+     */
+    public void invalidateTag(Object tag) {
+        tagEpochs.incrementAndGet(tagStripe(tag));
+        Set<K> keys = keysByTag.remove(tag);
+        if (keys == null) {
+            return;
+        }
+        for (K key : keys) {
+            invalidate(key);
+            tagInvalidations.increment();
+        }
+    }
+
+    public void invalidateAll() {
+        for (int i = 0; i < TAG_STRIPES; i++) {
+            tagEpochs.incrementAndGet(i);
+        }
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+        keysByTag.clear();
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", name);
+        stats.put("size", size());
+        stats.put("maximumSize", maximumSize);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", requests == 0 ? 0.0 : (double) hitCount / requests);
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("loads", loads.sum());
+        stats.put("loadFailures", loadFailures.sum());
+        stats.put("coalescedLoads", coalescedLoads.sum());
+        stats.put("tagInvalidations", tagInvalidations.sum());
+        return stats;
+    }
+
+    /**
+     * Stores the value unless one of its tags was invalidated after the epochs
+     * were taken. The entry is tagged first and the epochs checked after, both
+     * under the segment lock: an invalidation that the check misses bumps its
+     * epoch later, so it finds the key under the tag and evicts it.
+     */
+    private void insert(K key, V value, long[] epochs) {
+        Collection<?> tags = tagger != null ? tagger.apply(value) : Collections.emptyList();
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Entry<V> entry = new Entry<>(value, System.nanoTime() + ttlNanos, tags);
+            Entry<V> previous = segment.put(key, entry);
+            if (previous != null) {
+                untag(key, previous);
+            }
+            for (Object tag : tags) {
+                keysByTag.computeIfAbsent(tag, t -> ConcurrentHashMap.newKeySet()).add(key);
+            }
+            if (invalidatedSince(tags, epochs)) {
+                // Loaded from before a write to one of its tags - discard it
+                segment.remove(key);
+                untag(key, entry);
+            }
+        }
+    }
+
+    private V peek(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Entry<V> entry = segment.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt - System.nanoTime() <= 0) {
+                segment.remove(key);
+                untag(key, entry);
+                expirations.increment();
+                return null;
+            }
+            return entry.value;
+        }
+    }
+
+    private void onEvicted(K key, Entry<V> entry) {
+        evictions.increment();
+        untag(key, entry);
+    }
+
+    private void untag(K key, Entry<V> entry) {
+        for (Object tag : entry.tags) {
+            keysByTag.computeIfPresent(tag, (t, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    private long[] snapshotTagEpochs() {
+        if (tagger == null) {
+            return null;
+        }
+        long[] epochs = new long[TAG_STRIPES];
+        for (int i = 0; i < TAG_STRIPES; i++) {
+            epochs[i] = tagEpochs.get(i);
+        }
+        return epochs;
+    }
+
+    private boolean invalidatedSince(Collection<?> tags, long[] epochs) {
+        if (epochs == null) {
+            return false;
+        }
+        for (Object tag : tags) {
+            int stripe = tagStripe(tag);
+            if (tagEpochs.get(stripe) != epochs[stripe]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int tagStripe(Object tag) {
+        int h = tag.hashCode();
+        h ^= (h >>> 16);
+        return h & (TAG_STRIPES - 1);
+    }
+
+    private Segment<K, V> segmentFor(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (SEGMENTS - 1)];
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAt;
+        final Collection<?> tags;
+
+        Entry(V value, long expiresAt, Collection<?> tags) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.tags = tags;
+        }
+    }
+
+    /**
+     * Access-ordered map that drops its least recently used entry past capacity
+     * Always accessed while holding the segment's monitor
+     */
+    private static final class Segment<K, V> extends LinkedHashMap<K, Entry<V>> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+        private final BiConsumer<K, Entry<V>> evictionListener;
+
+        Segment(int capacity, BiConsumer<K, Entry<V>> evictionListener) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictionListener = evictionListener;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+            if (size() > capacity) {
+                evictionListener.accept(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    }
+}
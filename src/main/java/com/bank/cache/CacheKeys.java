@@ -0,0 +1,25 @@
+package com.bank.cache;
+
+/**
+ * Composite keys built from several request fields
+ * Each part is length-prefixed, so no value can shift into its neighbour
+ * whatever separators it contains, and null encodes apart from "null".
+ */
+public final class CacheKeys {
+
+    private CacheKeys() {
+    }
+
+    public static String of(Object... parts) {
+        StringBuilder key = new StringBuilder();
+        for (Object part : parts) {
+            if (part == null) {
+                key.append("-;");
+                continue;
+            }
+            String value = String.valueOf(part);
+            key.append(value.length()).append(':').append(value).append(';');
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,74 @@
+package com.bank.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Replays responses for retried requests carrying the same Idempotency-Key
+ * Keys are scoped by endpoint and caller. The first request runs the action
+ * and its response is kept for the TTL; a retry arriving while it is still
+ * running waits for that result instead of executing again. Failures are not
+ * stored, so a retry after an error runs the action again.
+ */
+@Component
+public class IdempotencyStore {
+
+    @Value("${bank.idempotency.max-size:100000}")
+    private int maxSize;
+
+    @Value("${bank.idempotency.ttl-seconds:86400}")
+    private long ttlSeconds;
+
+    private BoundedCache<String, StoredResponse> responses;
+
+    @PostConstruct
+    void initStore() {
+        responses = new BoundedCache<>("idempotency", maxSize, Duration.ofSeconds(ttlSeconds));
+    }
+
+    /**
+     * Runs the action once per key; without a key every call runs it.
+     * The fingerprint describes the request body, reusing a key for a
+     * different request is rejected rather than answered with a stale response.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String endpoint, String caller, String idempotencyKey,
+                         String fingerprint, Supplier<T> action) {
+        if (idempotencyKey == null || idempotencyKey.isEmpty()) {
+            return action.get();
+        }
+
+        String key = CacheKeys.of(endpoint, caller, idempotencyKey);
+        StoredResponse stored = responses.getOrLoad(key, k -> new StoredResponse(fingerprint, action.get()));
+        if (!stored.fingerprint.equals(fingerprint)) {
+            throw new RuntimeException("Idempotency-Key was already used for a different request");
+        }
+        return (T) stored.response;
+    }
+
+    /**
+     * Unambiguous encoding of the request fields a key must not be reused across
+     */
+    public static String fingerprint(Object... parts) {
+        return CacheKeys.of(parts);
+    }
+
+    public Map<String, Object> stats() {
+        return responses.stats();
+    }
+
+    private static final class StoredResponse {
+        final String fingerprint;
+        final Object response;
+
+        StoredResponse(String fingerprint, Object response) {
+            this.fingerprint = fingerprint;
+            this.response = response;
+        }
+    }
+}
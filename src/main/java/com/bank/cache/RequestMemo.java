@@ -0,0 +1,74 @@
+package com.bank.cache;
+
+import com.bank.event.AccountChangeEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Request-scoped memoization for idempotent reads
+ * Results live in a request attribute keyed by operation and arguments, so a
+ * lookup repeated across layers within one HTTP request runs once and nothing
+ * outlives the request. Outside a request thread every call goes to the loader.
+ */
+@Component
+public class RequestMemo {
+
+    private static final String ATTRIBUTE = RequestMemo.class.getName();
+
+    private static final Object NULL = new Object();
+
+    @SuppressWarnings("unchecked")
+    public <T> T memoize(String operation, Supplier<T> loader, Object... args) {
+        Map<List<Object>, Object> memo = currentMemo(true);
+        if (memo == null) {
+            return loader.get();
+        }
+
+        List<Object> key = new ArrayList<>(args.length + 1);
+        key.add(operation);
+        key.addAll(Arrays.asList(args));
+
+        Object cached = memo.get(key);
+        if (cached != null) {
+            return cached == NULL ? null : (T) cached;
+        }
+        T value = loader.get();
+        memo.put(key, value != null ? value : NULL);
+        return value;
+    }
+
+    /**
+     * A write inside the request makes earlier reads stale - start over
+     */
+    @EventListener
+    public void onAccountChange(AccountChangeEvent event) {
+        Map<List<Object>, Object> memo = currentMemo(false);
+        if (memo != null) {
+            memo.clear();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<List<Object>, Object> currentMemo(boolean create) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Map<List<Object>, Object> memo =
+            (Map<List<Object>, Object>) attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (memo == null && create) {
+            memo = new HashMap<>();
+            attributes.setAttribute(ATTRIBUTE, memo, RequestAttributes.SCOPE_REQUEST);
+        }
+        return memo;
+    }
+}
@@ -1,10 +1,21 @@
 package com.bank.controller;
 
+import com.bank.cache.IdempotencyStore;
+import com.bank.dto.AuditLogPage;
+import com.bank.dto.AuditLogQuery;
 import com.bank.service.AccountService;
+import com.bank.service.AuthService;
 import com.bank.dto.AccountResponse;
+import com.bank.dto.AccountSearchPage;
+import com.bank.dto.TransferRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
 
@@ -19,6 +30,15 @@ public class AccountController {
     @Autowired
     private AccountService accountService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private AuthService authService;
+
     /**
      * ATTACK PATH 1A → searchByNameUnsafe sink
      * Path: AccountController.searchAccounts → AccountService.searchAccountsByName 
@@ -34,6 +54,60 @@ public class AccountController {
         return accountService.searchAccountsByName(query, accountType);
     }
 
+    /**
+     * Keyset-paginated search, pass nextCursor back as cursor for the following page
+     */
+    @GetMapping("/search/page")
+    public AccountSearchPage searchAccountsPage(
+            @RequestParam("query") String query,
+            @RequestParam(value = "type", required = false) String accountType,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "50") int size) {
+        
+        return accountService.searchAccountsPage(query, accountType, cursor, size);
+    }
+
+    /**
+     * Streaming search, one JSON object per line written as rows are read
+     */
+    @GetMapping(value = "/search/stream", produces = "application/x-ndjson")
+    public StreamingResponseBody streamAccounts(
+            @RequestParam("query") String query,
+            @RequestParam(value = "type", required = false) String accountType) {
+        
+        return out -> accountService.streamAccountsByName(query, accountType, account -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(account));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Transfer from an account the authenticated caller owns
+     * A retry with the same Idempotency-Key gets the original response back
+     */
+    @PostMapping("/transfer")
+    public Map<String, Object> transfer(
+            @RequestBody TransferRequest transferRequest,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            HttpServletRequest request) {
+        
+        String userId = authService.validateTokenAndGetUser(authService.extractToken(request));
+        if (!authService.verifyAccountOwnership(userId, transferRequest.getFromAccountId())) {
+            throw new RuntimeException("Unauthorized");
+        }
+        
+        String fingerprint = IdempotencyStore.fingerprint(transferRequest.getFromAccountId(),
+            transferRequest.getToAccountNumber(), transferRequest.getAmount());
+        return idempotencyStore.execute("transfer", userId, idempotencyKey, fingerprint, () -> {
+            String transactionId = accountService.transferFunds(transferRequest);
+            return Map.<String, Object>of("transactionId", transactionId, "status", "accepted");
+        });
+    }
+
     /**
      * ATTACK PATH 1B → executeAuditQuery sink
      * Path: AccountController.getSimpleAuditLogs → AccountService.queryAuditLogsDirectly
@@ -41,12 +115,16 @@ public class AccountController {
      * (3 hops - BASIC PATH)
      */
     @GetMapping("/audit")
-    public List<Map<String, Object>> getSimpleAuditLogs(
+    public AuditLogPage getSimpleAuditLogs(
             @RequestParam("userId") String userId,
-            @RequestParam(value = "action", required = false) String action) {
+            @RequestParam(value = "action", required = false) String action,
+            @RequestParam(value = "from", required = false) String from,
+            @RequestParam(value = "to", required = false) String to,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "100") int size) {
         
         // Simple direct path to service
-        return accountService.queryAuditLogsDirectly(userId, action);
+        return accountService.queryAuditLogsDirectly(userId, action, new AuditLogQuery(from, to, cursor, size));
     }
 }
 
@@ -1,14 +1,20 @@
 package com.bank.controller;
 
+import com.bank.cache.IdempotencyStore;
+import com.bank.dto.AuditLogPage;
+import com.bank.dto.AuditLogQuery;
 import com.bank.service.AccountService;
 import com.bank.service.AdminService;
+import com.bank.service.ReportJobService;
 import com.bank.middleware.AuditMiddleware;
+import com.bank.middleware.CacheMiddleware;
 import com.bank.dto.AccountResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.security.access.prepost.PreAuthorize;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -30,6 +36,15 @@ public class AdminController {
     @Autowired
     private AuditMiddleware auditMiddleware;
 
+    @Autowired
+    private CacheMiddleware cacheMiddleware;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private ReportJobService reportJobService;
+
     /**
      * ATTACK PATH 2A → searchByNameUnsafe sink
      * Path: AdminController.adminSearchAccounts → AuditMiddleware.logAndSearch 
@@ -56,12 +71,16 @@ public class AdminController {
      * (5 hops to sink)
      */
     @GetMapping("/audit-logs")
-    public List<Map<String, Object>> viewAuditLogs(
+    public AuditLogPage viewAuditLogs(
             @RequestParam("userId") String userId,
-            @RequestParam(value = "action", required = false) String action) {
+            @RequestParam(value = "action", required = false) String action,
+            @RequestParam(value = "from", required = false) String from,
+            @RequestParam(value = "to", required = false) String to,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "100") int size) {
         
         // Another path to the same audit query sink
-        return adminService.retrieveAuditLogs(userId, action);
+        return adminService.retrieveAuditLogs(userId, action, new AuditLogQuery(from, to, cursor, size));
     }
 
     /**
@@ -78,4 +97,45 @@ public class AdminController {
         // Process multiple search queries that all flow to the same sink
         return adminService.searchMultipleAccounts(searchCriteria);
     }
+
+    /**
+     * Cache hit, miss and eviction counters for monitoring
+     */
+    @GetMapping("/cache-stats")
+    public Map<String, Object> cacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mobileSearch", cacheMiddleware.getCacheStats());
+        stats.put("accountLookup", accountService.getLookupCacheStats());
+        stats.put("recentTransactions", accountService.getRecentTransactionStats());
+        stats.put("balanceSummaries", accountService.getBalanceSummaryStats());
+        stats.put("idempotency", idempotencyStore.stats());
+        return stats;
+    }
+
+    /**
+     * Group-commit throughput, batch size and wait time for transaction inserts
+     */
+    @GetMapping("/write-stats")
+    public Map<String, Object> writeStats() {
+        return accountService.getTransactionWriterStats();
+    }
+
+    /**
+     * Audit pipeline backlog, drops and write lag, plus archive segment counts
+     */
+    @GetMapping("/audit-stats")
+    public Map<String, Object> auditStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pipeline", auditMiddleware.getPipelineStats());
+        stats.put("archive", accountService.getAuditArchiveStats());
+        return stats;
+    }
+
+    /**
+     * Report job queue depth, outcomes and how many results spilled to disk
+     */
+    @GetMapping("/report-job-stats")
+    public Map<String, Object> reportJobStats() {
+        return reportJobService.stats();
+    }
 }
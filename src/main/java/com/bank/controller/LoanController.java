@@ -1,5 +1,7 @@
 package com.bank.controller;
 
+import com.bank.cache.IdempotencyStore;
+import com.bank.dto.LoanRecord;
 import com.bank.service.LoanService;
 import com.bank.service.AuthService;
 import com.bank.service.AccountService;
@@ -27,6 +29,9 @@ public class LoanController {
     @Autowired
     private AccountService accountService;
 
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
     /**
      * VULN 5: SQL Injection via loan application
      * Complex path through multiple services
@@ -34,6 +39,7 @@ public class LoanController {
     @PostMapping("/apply")
     public Map<String, Object> applyForLoan(
             @RequestBody LoanApplicationRequest loanRequest,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             HttpServletRequest request) {
         
         // Attack Path 6: Complex chain through validation and credit check (7 hops)
@@ -44,6 +50,36 @@ public class LoanController {
             throw new RuntimeException("Not authenticated");
         }
         
+        // Retries with the same Idempotency-Key replay the first decision
+        String fingerprint = IdempotencyStore.fingerprint(loanRequest.getAmount(),
+            loanRequest.getEmployerName(), loanRequest.getIncome());
+        return idempotencyStore.execute("loanApply", userId, idempotencyKey, fingerprint,
+            () -> processLoanApplication(userId, loanRequest));
+    }
+
+    /**
+     * Entry point with path to sanitized vulnerability
+     */
+    @GetMapping("/status")
+    public LoanRecord getLoanStatus(
+            @RequestParam("loanId") String loanId,
+            HttpServletRequest request) {
+        
+        // Attack Path 7: Path to sanitized query (5 hops)
+        String userId = authService.extractUserId(request);
+        boolean authenticated = authService.quickAuthCheck(userId);
+        
+        if (!authenticated) {
+            throw new RuntimeException("Unauthorized");
+        }
+        
+        String validatedLoanId = loanService.validateLoanId(loanId);
+        LoanRecord loanDetails = loanService.getLoanDetailsSafely(validatedLoanId);
+        
+        return loanDetails;
+    }
+
+    private Map<String, Object> processLoanApplication(String userId, LoanApplicationRequest loanRequest) {
         // Get user's primary account
         String primaryAccountId = accountService.getPrimaryAccountId(userId);
         
@@ -68,26 +104,4 @@ public class LoanController {
         
         return Map.of("loanId", loanId, "status", "pending");
     }
-
-    /**
-     * Entry point with path to sanitized vulnerability
-     */
-    @GetMapping("/status")
-    public Map<String, Object> getLoanStatus(
-            @RequestParam("loanId") String loanId,
-            HttpServletRequest request) {
-        
-        // Attack Path 7: Path to sanitized query (5 hops)
-        String userId = authService.extractUserId(request);
-        boolean authenticated = authService.quickAuthCheck(userId);
-        
-        if (!authenticated) {
-            throw new RuntimeException("Unauthorized");
-        }
-        
-        String validatedLoanId = loanService.validateLoanId(loanId);
-        Map<String, Object> loanDetails = loanService.getLoanDetailsSafely(validatedLoanId);
-        
-        return loanDetails;
-    }
 }
@@ -1,5 +1,7 @@
 package com.bank.controller;
 
+import com.bank.dto.AuditLogPage;
+import com.bank.dto.AuditLogQuery;
 import com.bank.service.MobileService;
 import com.bank.middleware.CacheMiddleware;
 import com.bank.dto.AccountResponse;
@@ -8,7 +10,6 @@ import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.List;
-import java.util.Map;
 
 /**
  * ATTACK PATH SOURCE #3: Mobile API Controller
@@ -61,10 +62,14 @@ public class MobileApiController {
      * (5 hops to sink)
      */
     @GetMapping("/audit-trail")
-    public List<Map<String, Object>> getMobileAuditTrail(
+    public AuditLogPage getMobileAuditTrail(
             @RequestParam("userId") String userId,
-            @RequestHeader("X-Session-Token") String sessionToken) {
+            @RequestHeader("X-Session-Token") String sessionToken,
+            @RequestParam(value = "from", required = false) String from,
+            @RequestParam(value = "to", required = false) String to,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "100") int size) {
         
-        return mobileService.fetchUserAuditTrail(userId, sessionToken);
+        return mobileService.fetchUserAuditTrail(userId, sessionToken, new AuditLogQuery(from, to, cursor, size));
     }
 }
@@ -1,13 +1,27 @@
 package com.bank.controller;
 
+import com.bank.dto.AuditLogPage;
+import com.bank.dto.AuditLogQuery;
+import com.bank.service.AuthService;
+import com.bank.service.ReportJobService;
 import com.bank.service.ReportService;
 import com.bank.middleware.ValidationMiddleware;
 import com.bank.dto.AccountResponse;
+import com.bank.util.ReportHelper;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * ATTACK PATH SOURCE #4: Reporting Controller
@@ -23,6 +37,18 @@ public class ReportController {
     @Autowired
     private ValidationMiddleware validationMiddleware;
 
+    @Autowired
+    private ReportJobService reportJobService;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private ReportHelper reportHelper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * ATTACK PATH 4A → searchByNameUnsafe sink
      * Path: ReportController.generateAccountReport → ValidationMiddleware.validateAndSearch
@@ -41,6 +67,56 @@ public class ReportController {
         return validationMiddleware.validateAndGenerateReport(accountQuery, accountType);
     }
 
+    /**
+     * Queues the account summary as a background job and returns its id
+     * Same path to the sink as 4A, run on a report worker instead of the request thread.
+     * Jobs belong to the authenticated user, who is also the unit of queueing fairness.
+     */
+    @PostMapping("/account-summary/jobs")
+    public Map<String, Object> submitAccountReport(
+            @RequestBody Map<String, String> reportCriteria,
+            HttpServletRequest request) {
+        
+        String tenantId = authenticatedTenant(request);
+        String accountQuery = reportCriteria.get("accountQuery");
+        String accountType = reportCriteria.get("accountType");
+        
+        String jobId = reportJobService.submit(tenantId, "account_summary",
+            () -> validationMiddleware.validateAndGenerateReport(accountQuery, accountType));
+        return reportJobService.status(tenantId, jobId);
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public Map<String, Object> reportJobStatus(
+            @PathVariable("jobId") String jobId,
+            HttpServletRequest request) {
+        
+        return reportJobService.status(authenticatedTenant(request), jobId);
+    }
+
+    /**
+     * Result of a finished job, streamed from memory or from its spill file
+     */
+    @GetMapping("/jobs/{jobId}/result")
+    public StreamingResponseBody reportJobResult(
+            @PathVariable("jobId") String jobId,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+        
+        String tenantId = authenticatedTenant(request);
+        reportJobService.requireResult(tenantId, jobId);
+        response.setContentType("application/json");
+        return out -> reportJobService.writeResult(tenantId, jobId, out);
+    }
+
+    @DeleteMapping("/jobs/{jobId}")
+    public Map<String, Object> cancelReportJob(
+            @PathVariable("jobId") String jobId,
+            HttpServletRequest request) {
+        
+        return reportJobService.cancel(authenticatedTenant(request), jobId);
+    }
+
     /**
      * ATTACK PATH 4B → executeAuditQuery sink
      * Path: ReportController.complianceReport → ReportService.generateComplianceReport
@@ -49,11 +125,63 @@ public class ReportController {
      * (5 hops to sink)
      */
     @GetMapping("/compliance")
-    public List<Map<String, Object>> complianceReport(
+    public AuditLogPage complianceReport(
+            @RequestParam("userId") String userId,
+            @RequestParam("actionType") String actionType,
+            @RequestParam(value = "from", required = false) String from,
+            @RequestParam(value = "to", required = false) String to,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "100") int size) {
+        
+        return reportService.generateComplianceReport(userId, actionType, new AuditLogQuery(from, to, cursor, size));
+    }
+
+    /**
+     * Streaming compliance export over the whole range, as CSV or NDJSON
+     * Rows are written as they are read from the database, optionally gzipped.
+     * Written on the request thread rather than as an async body, so a long
+     * export is not cut off by the MVC async request timeout.
+     */
+    @GetMapping("/compliance/export")
+    public void exportComplianceReport(
             @RequestParam("userId") String userId,
-            @RequestParam("actionType") String actionType) {
+            @RequestParam("actionType") String actionType,
+            @RequestParam(value = "from", required = false) String from,
+            @RequestParam(value = "to", required = false) String to,
+            @RequestParam(value = "format", defaultValue = "csv") String format,
+            @RequestParam(value = "gzip", defaultValue = "false") boolean gzip,
+            HttpServletResponse response) throws IOException {
         
-        return reportService.generateComplianceReport(userId, actionType);
+        boolean csv = !"ndjson".equalsIgnoreCase(format);
+        String fileName = "compliance-export." + (csv ? "csv" : "ndjson") + (gzip ? ".gz" : "");
+        response.setContentType(gzip ? "application/gzip" : csv ? "text/csv" : "application/x-ndjson");
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+        
+        OutputStream rawOut = response.getOutputStream();
+        GZIPOutputStream gzipOut = gzip ? new GZIPOutputStream(rawOut, true) : null;
+        OutputStream out = new BufferedOutputStream(gzipOut != null ? gzipOut : rawOut);
+        if (csv) {
+            out.write(ReportHelper.AUDIT_CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+        }
+        // Send the first bytes right away instead of after the first buffer fills
+        out.flush();
+        
+        reportService.exportComplianceReport(userId, actionType, from, to, entry -> {
+            try {
+                if (csv) {
+                    out.write(reportHelper.toCsvLine(entry).getBytes(StandardCharsets.UTF_8));
+                } else {
+                    out.write(objectMapper.writeValueAsBytes(entry));
+                    out.write('\n');
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
+        if (gzipOut != null) {
+            gzipOut.finish();
+        }
     }
 
     /**
@@ -66,8 +194,13 @@ public class ReportController {
     @GetMapping("/aggregate")
     public Map<String, Object> aggregateAccountData(
             @RequestParam("searchTerm") String searchTerm,
-            @RequestParam(value = "groupBy", required = false) String groupBy) {
+            @RequestParam(value = "groupBy", required = false) String groupBy,
+            @RequestParam(value = "summaryOnly", defaultValue = "false") boolean summaryOnly) {
         
-        return reportService.aggregateAccounts(searchTerm, groupBy);
+        return reportService.aggregateAccounts(searchTerm, groupBy, summaryOnly);
+    }
+
+    private String authenticatedTenant(HttpServletRequest request) {
+        return authService.validateTokenAndGetUser(authService.extractToken(request));
     }
 }
@@ -0,0 +1,25 @@
+package com.bank.dto;
+
+import java.util.List;
+
+/**
+ * One keyset page of account search results
+ */
+public class AccountSearchPage {
+    private List<AccountResponse> accounts;
+    private String nextCursor;
+
+    public AccountSearchPage() {}
+
+    public AccountSearchPage(List<AccountResponse> accounts, String nextCursor) {
+        this.accounts = accounts;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters and Setters
+    public List<AccountResponse> getAccounts() { return accounts; }
+    public void setAccounts(List<AccountResponse> accounts) { this.accounts = accounts; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
@@ -0,0 +1,73 @@
+package com.bank.dto;
+
+import java.sql.Timestamp;
+import java.util.Date;
+
+/**
+ * Immutable audit log row
+ */
+public final class AuditLogEntry {
+    public static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    // Entries not read back from audit_logs have no row id yet
+    public static final long NO_ID = 0;
+
+    private final long id;
+    private final long timestampMillis;
+    // Nanoseconds past timestampMillis, the part of a database timestamp a millisecond drops
+    private final int subMillisNanos;
+    private final String userId;
+    private final String action;
+    private final String details;
+
+    public AuditLogEntry(long id, long timestampMillis, String userId, String action, String details) {
+        this(id, timestampMillis, 0, userId, action, details);
+    }
+
+    public AuditLogEntry(long id, long timestampMillis, int subMillisNanos,
+                         String userId, String action, String details) {
+        this.id = id;
+        this.timestampMillis = timestampMillis;
+        this.subMillisNanos = subMillisNanos;
+        this.userId = userId;
+        this.action = action;
+        this.details = details;
+    }
+
+    // Getters
+    public long getId() { return id; }
+
+    public Date getTimestamp() { return timestampMillis == NO_TIMESTAMP ? null : new Date(timestampMillis); }
+
+    public String getUserId() { return userId; }
+
+    public String getAction() { return action; }
+
+    public String getDetails() { return details; }
+
+    public long timestampMillis() { return timestampMillis; }
+
+    public int subMillisNanos() { return subMillisNanos; }
+
+    /**
+     * Entry for a row read back from audit_logs, keeping the full timestamp precision
+     */
+    public static AuditLogEntry fromRow(long id, Timestamp timestamp, String userId, String action, String details) {
+        if (timestamp == null) {
+            return new AuditLogEntry(id, NO_TIMESTAMP, userId, action, details);
+        }
+        return new AuditLogEntry(id, timestamp.getTime(), timestamp.getNanos() % 1_000_000, userId, action, details);
+    }
+
+    /**
+     * The full timestamp, null when the row had none
+     */
+    public Timestamp toSqlTimestamp() {
+        return timestampMillis == NO_TIMESTAMP ? null : toSqlTimestamp(timestampMillis, subMillisNanos);
+    }
+
+    public static Timestamp toSqlTimestamp(long millis, int subMillisNanos) {
+        Timestamp timestamp = new Timestamp(millis);
+        timestamp.setNanos(timestamp.getNanos() + subMillisNanos);
+        return timestamp;
+    }
+}
@@ -0,0 +1,25 @@
+package com.bank.dto;
+
+import java.util.List;
+
+/**
+ * One keyset page of audit log entries, newest first
+ */
+public class AuditLogPage {
+    private List<AuditLogEntry> entries;
+    private String nextCursor;
+
+    public AuditLogPage() {}
+
+    public AuditLogPage(List<AuditLogEntry> entries, String nextCursor) {
+        this.entries = entries;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters and Setters
+    public List<AuditLogEntry> getEntries() { return entries; }
+    public void setEntries(List<AuditLogEntry> entries) { this.entries = entries; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
@@ -0,0 +1,28 @@
+package com.bank.dto;
+
+/**
+ * Time range and page of an audit log query, as given by the caller
+ * from/to accept epoch millis, an ISO date or a timestamp; either may be omitted
+ */
+public final class AuditLogQuery {
+    private final String from;
+    private final String to;
+    private final String cursor;
+    private final int size;
+
+    public AuditLogQuery(String from, String to, String cursor, int size) {
+        this.from = from;
+        this.to = to;
+        this.cursor = cursor;
+        this.size = size;
+    }
+
+    // Getters
+    public String getFrom() { return from; }
+
+    public String getTo() { return to; }
+
+    public String getCursor() { return cursor; }
+
+    public int getSize() { return size; }
+}
@@ -0,0 +1,29 @@
+package com.bank.dto;
+
+/**
+ * Count, sum, min, max and average of account balances in one group
+ */
+public final class BalanceSummary {
+    private final long count;
+    private final double sum;
+    private final double min;
+    private final double max;
+
+    public BalanceSummary(long count, double sum, double min, double max) {
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    // Getters
+    public long getCount() { return count; }
+
+    public double getSum() { return sum; }
+
+    public double getMin() { return min; }
+
+    public double getMax() { return max; }
+
+    public double getAverage() { return count == 0 ? 0.0 : sum / count; }
+}
@@ -0,0 +1,27 @@
+package com.bank.dto;
+
+/**
+ * Immutable loan application row
+ */
+public final class LoanRecord {
+    private final String loanId;
+    private final double amount;
+    private final String status;
+    private final String employerName;
+
+    public LoanRecord(String loanId, double amount, String status, String employerName) {
+        this.loanId = loanId;
+        this.amount = amount;
+        this.status = status;
+        this.employerName = employerName;
+    }
+
+    // Getters
+    public String getLoanId() { return loanId; }
+
+    public double getAmount() { return amount; }
+
+    public String getStatus() { return status; }
+
+    public String getEmployerName() { return employerName; }
+}
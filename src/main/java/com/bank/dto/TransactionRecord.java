@@ -0,0 +1,34 @@
+package com.bank.dto;
+
+import java.util.Date;
+
+/**
+ * Immutable transaction history row
+ * The date is kept as epoch millis and only turned into a Date when serialized
+ */
+public final class TransactionRecord {
+    public static final long NO_DATE = Long.MIN_VALUE;
+
+    private final String transactionId;
+    private final double amount;
+    private final long dateMillis;
+    private final String type;
+
+    public TransactionRecord(String transactionId, double amount, long dateMillis, String type) {
+        this.transactionId = transactionId;
+        this.amount = amount;
+        this.dateMillis = dateMillis;
+        this.type = type;
+    }
+
+    // Getters
+    public String getTransactionId() { return transactionId; }
+
+    public double getAmount() { return amount; }
+
+    public Date getDate() { return dateMillis == NO_DATE ? null : new Date(dateMillis); }
+
+    public String getType() { return type; }
+
+    public long dateMillis() { return dateMillis; }
+}
@@ -0,0 +1,42 @@
+package com.bank.event;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Published after a repository write commits, scoped to the accounts it touched
+ * Cache layers listen for it to evict only the affected entries.
+ *
+ * The only account writes this application makes move money, so every event
+ * is a balance change. Account names, types and numbers are maintained outside
+ * it; caches see such changes only when their entries expire, and the name
+ * index on its periodic rebuild.
+ */
+public class AccountChangeEvent {
+
+    private final Set<String> accountIds;
+
+    public AccountChangeEvent(Set<String> accountIds) {
+        this.accountIds = Collections.unmodifiableSet(accountIds);
+    }
+
+    /** Money moved - balances and transaction history changed */
+    public static AccountChangeEvent balanceChanged(String... accountIds) {
+        return new AccountChangeEvent(idSet(accountIds));
+    }
+
+    private static Set<String> idSet(String... accountIds) {
+        Set<String> ids = new LinkedHashSet<>(Arrays.asList(accountIds));
+        ids.remove(null);
+        return ids;
+    }
+
+    public Set<String> getAccountIds() { return accountIds; }
+
+    @Override
+    public String toString() {
+        return "AccountChangeEvent{" + accountIds + "}";
+    }
+}
@@ -0,0 +1,248 @@
+package com.bank.middleware;
+
+import com.bank.dto.AuditLogEntry;
+import com.bank.repository.AccountRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous audit trail writer
+ * Request threads publish entries into a bounded lock-free ring (one CAS to
+ * claim a slot) and a single background consumer drains it into batched
+ * inserts on audit_logs. When the ring is full the configured overflow policy
+ * decides between dropping the entry, waiting for space or logging it instead.
+ * A failed insert is retried with backoff; entries that still cannot be
+ * written, or that arrive after shutdown began, go to the application log so
+ * the trail keeps them.
+ */
+@Component
+public class AuditLogPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLogPipeline.class);
+
+    public enum OverflowPolicy { DROP, BLOCK, LOG }
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Value("${bank.audit.pipeline.capacity:8192}")
+    private int requestedCapacity;
+
+    @Value("${bank.audit.pipeline.max-batch:500}")
+    private int maxBatch;
+
+    @Value("${bank.audit.pipeline.idle-wait-micros:1000}")
+    private long idleWaitMicros;
+
+    // Logging keeps the trail complete under load; DROP has to be chosen explicitly
+    @Value("${bank.audit.pipeline.overflow:LOG}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${bank.audit.pipeline.write-attempts:3}")
+    private int writeAttempts;
+
+    @Value("${bank.audit.pipeline.retry-backoff-ms:100}")
+    private long retryBackoffMillis;
+
+    // Ring slots; a slot's sequence says whether it is free for a producer or ready for the consumer
+    private AuditLogEntry[] slots;
+    private AtomicLongArray sequences;
+    private int mask;
+
+    private final AtomicLong tail = new AtomicLong();
+    // Only the consumer thread advances the head
+    private volatile long head;
+
+    private Thread consumerThread;
+    private volatile boolean running;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder loggedOnOverflow = new LongAdder();
+    private final LongAdder failedEntries = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder loggedAfterStop = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder lagMillis = new LongAdder();
+    private final LongAccumulator maxLagMillis = new LongAccumulator(Math::max, 0);
+
+    @PostConstruct
+    void start() {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity) - 1) << 1;
+        slots = new AuditLogEntry[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        mask = capacity - 1;
+
+        running = true;
+        consumerThread = new Thread(this::runConsumer, "audit-log-writer");
+        consumerThread.setDaemon(true);
+        consumerThread.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        consumerThread.join(TimeUnit.SECONDS.toMillis(10));
+        if (!consumerThread.isAlive()) {
+            // Entries that raced past the running check after the consumer's last drain
+            AuditLogEntry entry;
+            while ((entry = poll()) != null) {
+                loggedAfterStop.increment();
+                logEntry(entry);
+            }
+        }
+    }
+
+    public void publish(String userId, String action, String details) {
+        AuditLogEntry entry =
+            new AuditLogEntry(AuditLogEntry.NO_ID, System.currentTimeMillis(), userId, action, details);
+        if (!running) {
+            loggedAfterStop.increment();
+            logEntry(entry);
+            return;
+        }
+        if (tryPublish(entry)) {
+            published.increment();
+            return;
+        }
+
+        switch (overflowPolicy) {
+            case BLOCK:
+                while (!tryPublish(entry)) {
+                    if (!running) {
+                        dropped.increment();
+                        return;
+                    }
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+                }
+                published.increment();
+                break;
+            case LOG:
+                loggedOnOverflow.increment();
+                logEntry(entry);
+                break;
+            default:
+                dropped.increment();
+                break;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long writtenCount = written.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("capacity", slots.length);
+        stats.put("queued", tail.get() - head);
+        stats.put("overflowPolicy", overflowPolicy);
+        stats.put("published", published.sum());
+        stats.put("written", writtenCount);
+        stats.put("batches", batches.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("loggedOnOverflow", loggedOnOverflow.sum());
+        stats.put("failedEntries", failedEntries.sum());
+        stats.put("retries", retries.sum());
+        stats.put("loggedAfterStop", loggedAfterStop.sum());
+        stats.put("averageLagMillis", writtenCount == 0 ? 0.0 : (double) lagMillis.sum() / writtenCount);
+        stats.put("maxLagMillis", maxLagMillis.get());
+        return stats;
+    }
+
+    private boolean tryPublish(AuditLogEntry entry) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long available = sequences.get(index) - position;
+            if (available < 0) {
+                return false;
+            }
+            if (available == 0 && tail.compareAndSet(position, position + 1)) {
+                slots[index] = entry;
+                // Volatile write publishes the entry to the consumer
+                sequences.set(index, position + 1);
+                return true;
+            }
+        }
+    }
+
+    private AuditLogEntry poll() {
+        long position = head;
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        AuditLogEntry entry = slots[index];
+        slots[index] = null;
+        sequences.set(index, position + slots.length);
+        head = position + 1;
+        return entry;
+    }
+
+    private void runConsumer() {
+        List<AuditLogEntry> batch = new ArrayList<>(maxBatch);
+        while (running || tail.get() != head) {
+            AuditLogEntry entry;
+            while (batch.size() < maxBatch && (entry = poll()) != null) {
+                batch.add(entry);
+            }
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(idleWaitMicros));
+                continue;
+            }
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<AuditLogEntry> batch) {
+        long backoffMillis = retryBackoffMillis;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                accountRepository.insertAuditLogs(batch);
+                break;
+            } catch (RuntimeException e) {
+                if (attempt >= writeAttempts) {
+                    failedEntries.add(batch.size());
+                    log.warn("Logging {} audit entries after {} failed inserts", batch.size(), attempt, e);
+                    batch.forEach(AuditLogPipeline::logEntry);
+                    return;
+                }
+                retries.increment();
+                log.debug("Audit insert failed, retrying in {} ms", backoffMillis, e);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoffMillis));
+                backoffMillis *= 2;
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        batches.increment();
+        written.add(batch.size());
+        for (AuditLogEntry entry : batch) {
+            long lag = now - entry.timestampMillis();
+            lagMillis.add(lag);
+            maxLagMillis.accumulate(lag);
+        }
+    }
+
+    private static void logEntry(AuditLogEntry entry) {
+        log.info("[AUDIT] user={} action={} details={}", entry.getUserId(), entry.getAction(), entry.getDetails());
+    }
+}
@@ -1,5 +1,7 @@
 package com.bank.middleware;
 
+import com.bank.dto.AuditLogPage;
+import com.bank.dto.AuditLogQuery;
 import com.bank.service.AdminService;
 import com.bank.service.AccountService;
 import com.bank.dto.AccountResponse;
@@ -21,6 +23,9 @@ public class AuditMiddleware {
     @Autowired
     private AccountService accountService;
 
+    @Autowired
+    private AuditLogPipeline auditLogPipeline;
+
     /**
      * Part of ATTACK PATH 2A
      * Called by: AdminController.adminSearchAccounts
@@ -39,17 +44,21 @@ public class AuditMiddleware {
      * Called by: AdminService.retrieveAuditLogs
      * Calls: AccountService.queryAuditLogsDirectly
      */
-    public List<Map<String, Object>> filterAndQuery(String userId, String action) {
+    public AuditLogPage filterAndQuery(String userId, String action, AuditLogQuery query) {
         // Apply filters
         String filteredAction = applyAuditFilter(action);
         
         // Query audit logs - flows to sink
-        return accountService.queryAuditLogsDirectly(userId, filteredAction);
+        return accountService.queryAuditLogsDirectly(userId, filteredAction, query);
     }
 
     private void logAdminOperation(String adminUser, String operation, String details) {
-        // Simplified logging
-        System.out.println("[AUDIT] Admin: " + adminUser + " Operation: " + operation);
+        // Queued for the background writer, the request thread never waits on the insert
+        auditLogPipeline.publish(adminUser, operation, details);
+    }
+
+    public Map<String, Object> getPipelineStats() {
+        return auditLogPipeline.stats();
     }
 
     private String applyAuditFilter(String action) {
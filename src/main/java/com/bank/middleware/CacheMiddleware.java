@@ -1,16 +1,27 @@
 package com.bank.middleware;
 
+import com.bank.cache.BoundedCache;
+import com.bank.cache.CacheKeys;
+import com.bank.event.AccountChangeEvent;
 import com.bank.service.MobileService;
 import com.bank.dto.AccountResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Cache Middleware - Adds caching layer in attack paths
+ * Two tiers: an optional small per-device tier in front of a shared tier
+ * keyed only on the normalized query, so identical searches from different
+ * devices cost one database query per TTL window
  */
 @Component
 public class CacheMiddleware {
@@ -18,7 +29,52 @@ public class CacheMiddleware {
     @Autowired
     private MobileService mobileService;
 
-    private Map<String, List<AccountResponse>> cache = new HashMap<>();
+    @Value("${bank.mobile.cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${bank.mobile.cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    @Value("${bank.mobile.cache.device-tier.enabled:false}")
+    private boolean deviceTierEnabled;
+
+    @Value("${bank.mobile.cache.device-tier.max-size:2000}")
+    private int deviceTierMaxSize;
+
+    @Value("${bank.mobile.cache.device-tier.ttl-seconds:5}")
+    private long deviceTierTtlSeconds;
+
+    private BoundedCache<String, List<AccountResponse>> sharedCache;
+
+    private BoundedCache<String, List<AccountResponse>> deviceCache;
+
+    @PostConstruct
+    void initCache() {
+        sharedCache = new BoundedCache<>("mobileSearch", maxSize, Duration.ofSeconds(ttlSeconds),
+            CacheMiddleware::accountIds);
+        if (deviceTierEnabled) {
+            deviceCache = new BoundedCache<>("mobileSearchDevice", deviceTierMaxSize,
+                Duration.ofSeconds(deviceTierTtlSeconds), CacheMiddleware::accountIds);
+        }
+    }
+
+    /**
+     * Balance changes evict only the results containing the touched accounts;
+     * renames made outside the application show up once the TTL runs out
+     */
+    @EventListener
+    public void onAccountChange(AccountChangeEvent event) {
+        for (String accountId : event.getAccountIds()) {
+            sharedCache.invalidateTag(accountId);
+            if (deviceCache != null) {
+                deviceCache.invalidateTag(accountId);
+            }
+        }
+    }
+
+    private static List<String> accountIds(List<AccountResponse> accounts) {
+        return accounts.stream().map(AccountResponse::getAccountId).collect(Collectors.toList());
+    }
 
     /**
      * Part of ATTACK PATH 3A
@@ -27,26 +83,39 @@ public class CacheMiddleware {
      */
     public List<AccountResponse> cachedSearch(String deviceId, String query, String accountType) {
         // Check cache
-        String cacheKey = generateCacheKey(deviceId, query, accountType);
+        String sharedKey = generateSharedKey(mobileService.normalizeMobileQuery(query), accountType);
         
-        if (cache.containsKey(cacheKey)) {
-            return cache.get(cacheKey);
+        if (deviceCache == null) {
+            return loadShared(sharedKey, query, accountType);
         }
-        
-        // Cache miss - delegate to mobile service which flows to sink
-        List<AccountResponse> results = mobileService.searchAccountsForMobile(query, accountType);
-        
-        // Store in cache
-        cache.put(cacheKey, results);
-        
-        return results;
+        return deviceCache.getOrLoad(CacheKeys.of(deviceId, sharedKey),
+            key -> loadShared(sharedKey, query, accountType));
     }
 
-    private String generateCacheKey(String deviceId, String query, String accountType) {
-        return deviceId + ":" + query + ":" + (accountType != null ? accountType : "all");
+    private List<AccountResponse> loadShared(String sharedKey, String query, String accountType) {
+        // Cache miss - delegate to mobile service which flows to sink,
+        // concurrent misses on the same key share one search
+        return sharedCache.getOrLoad(sharedKey, key -> mobileService.searchAccountsForMobile(query, accountType));
+    }
+
+    private String generateSharedKey(String normalizedQuery, String accountType) {
+        // A query containing ':' or a type literally named "all" must not share another search's entry
+        return CacheKeys.of(normalizedQuery, accountType);
     }
 
     public void clearCache() {
-        cache.clear();
+        sharedCache.invalidateAll();
+        if (deviceCache != null) {
+            deviceCache.invalidateAll();
+        }
+    }
+
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("shared", sharedCache.stats());
+        if (deviceCache != null) {
+            stats.put("device", deviceCache.stats());
+        }
+        return stats;
     }
 }
@@ -0,0 +1,260 @@
+package com.bank.repository;
+
+import com.bank.cache.BoundedCache;
+import com.bank.dto.AccountResponse;
+import com.bank.event.AccountChangeEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Read-through account entity cache for the single-account lookups
+ * One immutable entry per account id; account numbers and primary-account
+ * lookups resolve to that id. Every entry carries the write sequence at which
+ * its load started, and an entry older than the last committed write to its
+ * account on this node is never served. Account numbers and primary flags are
+ * not written here, so a change to them made elsewhere is seen within the TTL.
+ */
+@Component
+public class AccountLookupCache {
+
+    private static final int VERSION_STRIPES = 1024;
+
+    @Value("${bank.accounts.cache.max-size:100000}")
+    private int maxSize;
+
+    @Value("${bank.accounts.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private BoundedCache<String, CachedAccount> byId;
+    private BoundedCache<String, String> idByNumber;
+    private BoundedCache<String, String> primaryIdByUser;
+
+    // Global write sequence; each stripe holds the sequence of the last write to an account hashing there
+    private final AtomicLong writeSequence = new AtomicLong();
+    private final AtomicLongArray stripeVersions = new AtomicLongArray(VERSION_STRIPES);
+
+    @PostConstruct
+    void initCaches() {
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        byId = new BoundedCache<>("accountById", maxSize, ttl);
+        idByNumber = new BoundedCache<>("accountIdByNumber", maxSize, ttl);
+        primaryIdByUser = new BoundedCache<>("primaryAccountIdByUser", maxSize, ttl);
+    }
+
+    public AccountResponse findById(String accountId, Function<String, AccountResponse> loader) {
+        if (accountId == null) {
+            return loader.apply(null);
+        }
+        CachedAccount cached = byId.getOrLoad(accountId, id -> load(loader, id));
+        if (cached == null) {
+            return null;
+        }
+        if (isCurrent(cached)) {
+            return cached.toResponse();
+        }
+        byId.invalidate(accountId);
+        // The entry (or a load we joined) predates a write - go to the database
+        return install(loader, accountId);
+    }
+
+    public AccountResponse findByAccountNumber(String accountNumber,
+                                               Function<String, AccountResponse> numberLoader,
+                                               Function<String, AccountResponse> idLoader) {
+        String accountId = accountNumber != null ? idByNumber.get(accountNumber) : null;
+        if (accountId != null) {
+            return findById(accountId, idLoader);
+        }
+        AccountResponse account = install(numberLoader, accountNumber);
+        if (account != null && accountNumber != null) {
+            idByNumber.put(accountNumber, account.getAccountId());
+        }
+        return account;
+    }
+
+    public AccountResponse findPrimaryAccount(String userId,
+                                              Function<String, AccountResponse> userLoader,
+                                              Function<String, AccountResponse> idLoader) {
+        String accountId = userId != null ? primaryIdByUser.get(userId) : null;
+        if (accountId != null) {
+            return findById(accountId, idLoader);
+        }
+        AccountResponse account = install(userLoader, userId);
+        if (account != null && userId != null) {
+            primaryIdByUser.put(userId, account.getAccountId());
+        }
+        return account;
+    }
+
+    /**
+     * Multi-get by id: cached entries are served directly, the misses go to
+     * the batch loader in one call and are cached on the way back
+     */
+    public Map<String, AccountResponse> findByIds(Collection<String> accountIds,
+                                                  Function<Collection<String>, Map<String, AccountResponse>> batchLoader) {
+        Map<String, AccountResponse> found = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String accountId : accountIds) {
+            if (accountId == null || found.containsKey(accountId)) {
+                continue;
+            }
+            AccountResponse cached = currentCopy(accountId);
+            if (cached != null) {
+                found.put(accountId, cached);
+            } else {
+                misses.add(accountId);
+            }
+        }
+        if (!misses.isEmpty()) {
+            long startedAt = writeSequence.get();
+            for (AccountResponse account : batchLoader.apply(misses).values()) {
+                cacheLoaded(account, startedAt);
+                found.put(account.getAccountId(), account);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Multi-get by account number, keyed by the given numbers
+     */
+    public Map<String, AccountResponse> findByAccountNumbers(Collection<String> accountNumbers,
+                                                            Function<Collection<String>, Map<String, AccountResponse>> batchLoader) {
+        Map<String, AccountResponse> found = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String accountNumber : accountNumbers) {
+            if (accountNumber == null || found.containsKey(accountNumber)) {
+                continue;
+            }
+            String accountId = idByNumber.get(accountNumber);
+            AccountResponse cached = accountId != null ? currentCopy(accountId) : null;
+            if (cached != null) {
+                found.put(accountNumber, cached);
+            } else {
+                misses.add(accountNumber);
+            }
+        }
+        if (!misses.isEmpty()) {
+            long startedAt = writeSequence.get();
+            batchLoader.apply(misses).forEach((accountNumber, account) -> {
+                cacheLoaded(account, startedAt);
+                idByNumber.put(accountNumber, account.getAccountId());
+                found.put(accountNumber, account);
+            });
+        }
+        return found;
+    }
+
+    @EventListener
+    public void onAccountChange(AccountChangeEvent event) {
+        long sequence = writeSequence.incrementAndGet();
+        for (String accountId : event.getAccountIds()) {
+            stripeVersions.accumulateAndGet(stripe(accountId), sequence, Math::max);
+            byId.invalidate(accountId);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("byId", byId.stats());
+        stats.put("byNumber", idByNumber.stats());
+        stats.put("primaryByUser", primaryIdByUser.stats());
+        stats.put("writeSequence", writeSequence.get());
+        return stats;
+    }
+
+    /**
+     * Loads through the given loader and caches the result unless a write
+     * to that account committed while the load was running
+     */
+    private AccountResponse install(Function<String, AccountResponse> loader, String key) {
+        CachedAccount loaded = load(loader, key);
+        if (loaded == null) {
+            return null;
+        }
+        if (isCurrent(loaded)) {
+            byId.put(loaded.accountId, loaded);
+        }
+        return loaded.toResponse();
+    }
+
+    private AccountResponse currentCopy(String accountId) {
+        CachedAccount cached = byId.get(accountId);
+        return cached != null && isCurrent(cached) ? cached.toResponse() : null;
+    }
+
+    private void cacheLoaded(AccountResponse account, long startedAt) {
+        if (account.getAccountId() == null) {
+            return;
+        }
+        CachedAccount loaded = new CachedAccount(account, startedAt);
+        if (isCurrent(loaded)) {
+            byId.put(loaded.accountId, loaded);
+        }
+    }
+
+    private CachedAccount load(Function<String, AccountResponse> loader, String key) {
+        long startedAt = writeSequence.get();
+        AccountResponse account = loader.apply(key);
+        return account != null && account.getAccountId() != null ? new CachedAccount(account, startedAt) : null;
+    }
+
+    private boolean isCurrent(CachedAccount cached) {
+        return stripeVersions.get(stripe(cached.accountId)) <= cached.version;
+    }
+
+    private static int stripe(String accountId) {
+        int h = accountId.hashCode();
+        h ^= (h >>> 16);
+        return h & (VERSION_STRIPES - 1);
+    }
+
+    /**
+     * Immutable snapshot shared by all readers; callers get their own copy
+     */
+    private static final class CachedAccount {
+        final String accountId;
+        final String accountName;
+        final String accountNumber;
+        final String accountType;
+        final double balance;
+        final String currency;
+        final String email;
+        final long version;
+
+        CachedAccount(AccountResponse account, long version) {
+            this.accountId = account.getAccountId();
+            this.accountName = account.getAccountName();
+            this.accountNumber = account.getAccountNumber();
+            this.accountType = account.getAccountType();
+            this.balance = account.getBalance();
+            this.currency = account.getCurrency();
+            this.email = account.getEmail();
+            this.version = version;
+        }
+
+        AccountResponse toResponse() {
+            AccountResponse account = new AccountResponse();
+            account.setAccountId(accountId);
+            account.setAccountName(accountName);
+            account.setAccountNumber(accountNumber);
+            account.setAccountType(accountType);
+            account.setBalance(balance);
+            account.setCurrency(currency);
+            account.setEmail(email);
+            return account;
+        }
+    }
+}
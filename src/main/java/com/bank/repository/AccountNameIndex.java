@@ -0,0 +1,368 @@
+package com.bank.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index over account_name and account_type
+ * Answers substring searches without LIKE '%term%' table scans,
+ * the database is only used to hydrate the matching rows.
+ * Names and types are written outside this application, so a rename is
+ * searchable only after the next periodic rebuild.
+ */
+@Component
+public class AccountNameIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountNameIndex.class);
+
+    private static final int GRAM = 3;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Ordinal -> indexed account; removed accounts leave a null slot until the next rebuild
+    private List<Doc> docs = new ArrayList<>();
+    private Map<String, Integer> ordinals = new HashMap<>();
+    private Map<Long, Postings> postings = new HashMap<>();
+    // Upserts (null for removals) made while a rebuild scans, replayed onto its snapshot; null otherwise
+    private Map<String, Doc> writesDuringRebuild;
+
+    private volatile boolean ready;
+
+    /**
+     * Full rebuild from the accounts table
+     * Runs once at startup and then periodically to pick up out-of-band changes.
+     * Writes that arrive during the scan are replayed onto the new snapshot,
+     * since the scan may have read those rows before they changed.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${bank.search.index.refresh-ms:300000}")
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            writesDuringRebuild = new LinkedHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<Doc> loadedDocs = new ArrayList<>();
+        Map<String, Integer> loadedOrdinals = new HashMap<>();
+        Map<Long, Postings> loadedPostings = new HashMap<>();
+
+        try {
+            accountRepository.scanAccountNames(account -> {
+                Doc doc = new Doc(account.getAccountId(), account.getAccountName(), account.getAccountType());
+                int ordinal = loadedDocs.size();
+                loadedDocs.add(doc);
+                loadedOrdinals.put(doc.accountId, ordinal);
+                addPostings(loadedPostings, doc, ordinal);
+            });
+        } catch (RuntimeException e) {
+            // Keep serving the previous snapshot; searches fall back to SQL until the first build succeeds
+            log.warn("Account name index rebuild failed", e);
+            lock.writeLock().lock();
+            try {
+                writesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            docs = loadedDocs;
+            ordinals = loadedOrdinals;
+            postings = loadedPostings;
+            writesDuringRebuild.forEach((accountId, doc) -> {
+                if (doc != null) {
+                    applyUpsert(doc);
+                } else {
+                    applyRemove(accountId);
+                }
+            });
+            writesDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Only plain substrings can be answered from the index
+     * LIKE wildcards and quoting keep going through the SQL path
+     */
+    public static boolean isPlainTerm(String term) {
+        if (term == null) {
+            return false;
+        }
+        for (int i = 0; i < term.length(); i++) {
+            char c = term.charAt(i);
+            if (c == '%' || c == '_' || c == '\\' || c == '\'') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same contract as account_name LIKE '%term%' [AND account_type = type],
+     * case-sensitive like LIKE itself. Returns matching account ids.
+     */
+    public List<String> search(String term, String accountType) {
+        String needle = term != null ? term : "";
+        boolean filterType = accountType != null && !accountType.isEmpty();
+        List<String> matches = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            if (needle.length() < GRAM) {
+                // Too short for trigrams - linear scan of the in-memory names
+                for (Doc doc : docs) {
+                    if (doc != null && doc.matches(needle, filterType ? accountType : null)) {
+                        matches.add(doc.accountId);
+                    }
+                }
+                return matches;
+            }
+
+            Postings[] lists = lookupPostings(needle);
+            if (lists == null) {
+                return Collections.emptyList();
+            }
+
+            // Drive the intersection from the rarest trigram
+            Postings smallest = lists[0];
+            for (int i = 0; i < smallest.size; i++) {
+                int ordinal = smallest.ordinals[i];
+                if (!containedInAll(lists, ordinal)) {
+                    continue;
+                }
+                Doc doc = docs.get(ordinal);
+                // Trigram hits are candidates only - confirm the actual substring
+                if (doc != null && doc.matches(needle, filterType ? accountType : null)) {
+                    matches.add(doc.accountId);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return matches;
+    }
+
+    /**
+     * Index or re-index a single account after it was created or changed
+     */
+    public void upsert(String accountId, String accountName, String accountType) {
+        if (accountId == null) {
+            return;
+        }
+        Doc doc = new Doc(accountId, accountName, accountType);
+
+        lock.writeLock().lock();
+        try {
+            recordDuringRebuild(accountId, doc);
+            applyUpsert(doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String accountId) {
+        lock.writeLock().lock();
+        try {
+            recordDuringRebuild(accountId, null);
+            applyRemove(accountId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Callers hold the write lock
+    private void recordDuringRebuild(String accountId, Doc doc) {
+        if (writesDuringRebuild != null) {
+            // Re-inserted so replay keeps the order of the latest writes
+            writesDuringRebuild.remove(accountId);
+            writesDuringRebuild.put(accountId, doc);
+        }
+    }
+
+    private void applyUpsert(Doc doc) {
+        Integer existing = ordinals.get(doc.accountId);
+        if (existing != null) {
+            Doc current = docs.get(existing);
+            if (current != null && current.sameAs(doc)) {
+                return;
+            }
+            removeOrdinal(existing);
+        }
+        int ordinal = docs.size();
+        docs.add(doc);
+        ordinals.put(doc.accountId, ordinal);
+        addPostings(postings, doc, ordinal);
+    }
+
+    private void applyRemove(String accountId) {
+        Integer ordinal = ordinals.remove(accountId);
+        if (ordinal != null) {
+            removeOrdinal(ordinal);
+        }
+    }
+
+    private void removeOrdinal(int ordinal) {
+        Doc doc = docs.get(ordinal);
+        if (doc == null) {
+            return;
+        }
+        for (long gram : trigrams(doc.name)) {
+            Postings list = postings.get(gram);
+            if (list != null) {
+                list.remove(ordinal);
+                if (list.size == 0) {
+                    postings.remove(gram);
+                }
+            }
+        }
+        docs.set(ordinal, null);
+    }
+
+    private Postings[] lookupPostings(String needle) {
+        long[] grams = trigrams(needle);
+        Postings[] lists = new Postings[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            Postings list = postings.get(grams[i]);
+            if (list == null) {
+                return null;
+            }
+            lists[i] = list;
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+        return lists;
+    }
+
+    private static boolean containedInAll(Postings[] lists, int ordinal) {
+        for (int i = 1; i < lists.length; i++) {
+            if (!lists[i].contains(ordinal)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void addPostings(Map<Long, Postings> target, Doc doc, int ordinal) {
+        for (long gram : trigrams(doc.name)) {
+            target.computeIfAbsent(gram, k -> new Postings()).add(ordinal);
+        }
+    }
+
+    /**
+     * Distinct trigrams of a string, three chars packed into one long
+     */
+    private static long[] trigrams(String value) {
+        if (value.length() < GRAM) {
+            return new long[0];
+        }
+        long[] grams = new long[value.length() - GRAM + 1];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) value.charAt(i) << 32)
+                    | ((long) value.charAt(i + 1) << 16)
+                    | value.charAt(i + 2);
+        }
+        return Arrays.stream(grams).distinct().toArray();
+    }
+
+    private static final class Doc {
+        final String accountId;
+        final String name;
+        // LIKE never matches a NULL name, not even '%%'
+        final boolean hasName;
+        final String accountType;
+
+        Doc(String accountId, String accountName, String accountType) {
+            this.accountId = accountId;
+            this.name = accountName != null ? accountName : "";
+            this.hasName = accountName != null;
+            this.accountType = accountType;
+        }
+
+        boolean matches(String needle, String requiredType) {
+            if (!hasName || (requiredType != null && !requiredType.equals(accountType))) {
+                return false;
+            }
+            return name.contains(needle);
+        }
+
+        boolean sameAs(Doc other) {
+            return hasName == other.hasName && name.equals(other.name)
+                    && (accountType == null ? other.accountType == null : accountType.equals(other.accountType));
+        }
+    }
+
+    /**
+     * Sorted, growable int set of document ordinals
+     * New ordinals are always the largest, so the common case is an append
+     */
+    private static final class Postings {
+        int[] ordinals = new int[4];
+        int size;
+
+        void add(int ordinal) {
+            if (size > 0 && ordinals[size - 1] >= ordinal) {
+                int pos = Arrays.binarySearch(ordinals, 0, size, ordinal);
+                if (pos >= 0) {
+                    return;
+                }
+                insertAt(-pos - 1, ordinal);
+                return;
+            }
+            insertAt(size, ordinal);
+        }
+
+        void remove(int ordinal) {
+            int pos = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (pos >= 0) {
+                System.arraycopy(ordinals, pos + 1, ordinals, pos, size - pos - 1);
+                size--;
+            }
+        }
+
+        boolean contains(int ordinal) {
+            return Arrays.binarySearch(ordinals, 0, size, ordinal) >= 0;
+        }
+
+        private void insertAt(int pos, int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            System.arraycopy(ordinals, pos, ordinals, pos + 1, size - pos);
+            ordinals[pos] = ordinal;
+            size++;
+        }
+    }
+}
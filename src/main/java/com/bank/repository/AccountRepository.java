@@ -1,14 +1,21 @@
 package com.bank.repository;
 
+import com.bank.dto.AuditLogEntry;
 import com.bank.dto.AccountResponse;
+import com.bank.dto.BalanceSummary;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Repository layer with actual SQL injection sinks
@@ -16,9 +23,44 @@ import java.util.Map;
 @Repository
 public class AccountRepository {
 
+    // Column order of the account row mapping plan
+    private static final String[] ACCOUNT_COLUMNS = {
+        "account_id", "account_name", "account_number", "account_type", "balance", "currency", "email"
+    };
+    private static final int COL_ACCOUNT_ID = 0;
+    private static final int COL_ACCOUNT_NAME = 1;
+    private static final int COL_ACCOUNT_NUMBER = 2;
+    private static final int COL_ACCOUNT_TYPE = 3;
+    private static final int COL_BALANCE = 4;
+    private static final int COL_CURRENCY = 5;
+    private static final int COL_EMAIL = 6;
+
+    // Single-row reads map by name; resolving positions would cost more than it saves
+    private static final ColumnPlan ACCOUNT_BY_NAME = ColumnPlan.byName(ACCOUNT_COLUMNS);
+
+    // Byte-order collation, which is how Java sorts ASCII account ids, so the index
+    // and SQL paths of the paged search order pages alike and share cursors;
+    // idx_accounts_account_id_c (SchemaSetup) lets the order and seek use an index
+    private static final String PAGE_KEY = "account_id COLLATE \"C\"";
+
+    private static final String[] AUDIT_COLUMNS = {"id", "timestamp", "user_id", "action", "details"};
+
+    // Wildcard action, matches every action of the user
+    public static final String ALL_ACTIONS = "ALL";
+
+    private static final String INSERT_AUDIT_LOG_SQL =
+        "INSERT INTO audit_logs (user_id, action, details, timestamp) VALUES (?, ?, ?, ?)";
+
+    private static final int SCAN_FETCH_SIZE = 1000;
+    private static final int IN_CHUNK_SIZE = 500;
+    private static final int[] IN_LIST_BUCKETS = {1, 8, 32, 128, IN_CHUNK_SIZE};
+
     @Autowired
     private DataSource dataSource;
 
+    @Autowired
+    private AccountLookupCache accountLookupCache;
+
     /**
      * CRITICAL SINK: SQL Injection vulnerability
      * This is where cursor.execute() happens with unsanitized input
@@ -41,8 +83,9 @@ public class AccountRepository {
             // SINK: Vulnerable cursor.execute() equivalent
             ResultSet rs = stmt.executeQuery(query);
             
+            ColumnPlan plan = accountPlan(rs);
             while (rs.next()) {
-                AccountResponse account = mapResultToAccount(rs);
+                AccountResponse account = mapResultToAccount(rs, plan);
                 results.add(account);
             }
         } catch (SQLException e) {
@@ -54,26 +97,49 @@ public class AccountRepository {
 
     /**
      * CRITICAL SINK: Admin audit query with SQL injection
+     * Returns at most limit entries in [from, to), newest first; when afterTimestamp
+     * is given only entries ordered after (afterTimestamp, afterId) are returned
      */
-    public List<Map<String, Object>> executeAuditQuery(String userId, String action) {
-        List<Map<String, Object>> results = new ArrayList<>();
+    public List<AuditLogEntry> executeAuditQuery(String userId, String action, Timestamp from, Timestamp to,
+                                                 Timestamp afterTimestamp, long afterId, int limit) {
+        List<AuditLogEntry> results = new ArrayList<>();
         
         // Vulnerable: Direct string concatenation
-        String query = "SELECT * FROM audit_logs WHERE user_id = '" + userId + 
-                      "' AND action = '" + action + "' ORDER BY timestamp DESC";
+        StringBuilder query = new StringBuilder("SELECT * FROM audit_logs WHERE user_id = '")
+            .append(userId).append("'");
+        if (!ALL_ACTIONS.equals(action)) {
+            query.append(" AND action = '").append(action).append("'");
+        }
+        query.append(" AND timestamp >= ? AND timestamp < ?");
+        if (afterTimestamp != null) {
+            query.append(" AND (timestamp < ? OR (timestamp = ? AND id < ?))");
+        }
+        query.append(" ORDER BY timestamp DESC, id DESC LIMIT ?");
         
         try (Connection conn = dataSource.getConnection();
-             Statement stmt = conn.createStatement()) {
+             PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+            
+            int index = 1;
+            stmt.setTimestamp(index++, from);
+            stmt.setTimestamp(index++, to);
+            if (afterTimestamp != null) {
+                stmt.setTimestamp(index++, afterTimestamp);
+                stmt.setTimestamp(index++, afterTimestamp);
+                stmt.setLong(index++, afterId);
+            }
+            stmt.setInt(index, limit);
             
             // SINK: Vulnerable execution
-            ResultSet rs = stmt.executeQuery(query);
+            ResultSet rs = stmt.executeQuery();
             
+            ColumnPlan plan = ColumnPlan.forResultSet(rs, AUDIT_COLUMNS);
             while (rs.next()) {
-                Map<String, Object> log = new HashMap<>();
-                log.put("timestamp", rs.getTimestamp("timestamp"));
-                log.put("action", rs.getString("action"));
-                log.put("details", rs.getString("details"));
-                results.add(log);
+                results.add(AuditLogEntry.fromRow(
+                    plan.getLong(rs, 0),
+                    plan.getTimestamp(rs, 1),
+                    plan.getString(rs, 2),
+                    plan.getString(rs, 3),
+                    plan.getString(rs, 4)));
             }
         } catch (SQLException e) {
             throw new RuntimeException("Audit query failed", e);
@@ -82,6 +148,120 @@ public class AccountRepository {
         return results;
     }
 
+    /**
+     * SAFE METHOD: Writes audit entries as one parameterized JDBC batch
+     */
+    public void insertAuditLogs(List<AuditLogEntry> entries) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(INSERT_AUDIT_LOG_SQL)) {
+            
+            for (AuditLogEntry entry : entries) {
+                stmt.setString(1, entry.getUserId());
+                stmt.setString(2, entry.getAction());
+                stmt.setString(3, entry.getDetails());
+                stmt.setTimestamp(4, entry.toSqlTimestamp());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        } catch (SQLException e) {
+            throw new RuntimeException("Audit insert failed", e);
+        }
+    }
+
+    /**
+     * SAFE METHOD: Streams the user's audit entries in [from, to) oldest first
+     * Rows are read through a cursor with a bounded fetch size, so memory stays
+     * flat however long the history is. ALL matches every action.
+     */
+    public void streamAuditLogs(String userId, String action, Timestamp from, Timestamp to,
+                                Consumer<AuditLogEntry> consumer) {
+        boolean allActions = ALL_ACTIONS.equals(action);
+        String query = "SELECT * FROM audit_logs WHERE user_id = ?" +
+                      (allActions ? "" : " AND action = ?") +
+                      " AND timestamp >= ? AND timestamp < ? ORDER BY timestamp, id";
+        
+        try (Connection conn = dataSource.getConnection()) {
+            // Most drivers only honour the fetch size with a cursor, which needs a transaction
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setFetchSize(SCAN_FETCH_SIZE);
+                int index = 1;
+                stmt.setString(index++, userId);
+                if (!allActions) {
+                    stmt.setString(index++, action);
+                }
+                stmt.setTimestamp(index++, from);
+                stmt.setTimestamp(index, to);
+                ResultSet rs = stmt.executeQuery();
+                
+                ColumnPlan plan = ColumnPlan.forResultSet(rs, AUDIT_COLUMNS);
+                while (rs.next()) {
+                    consumer.accept(AuditLogEntry.fromRow(
+                        plan.getLong(rs, 0),
+                        plan.getTimestamp(rs, 1),
+                        plan.getString(rs, 2),
+                        plan.getString(rs, 3),
+                        plan.getString(rs, 4)));
+                }
+                conn.commit();
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Audit query failed", e);
+        }
+    }
+
+    /**
+     * SAFE METHOD: Oldest audit entries dated before the cutoff, oldest first
+     */
+    public List<AuditLogEntry> findAuditLogsBefore(Timestamp cutoff, int limit) {
+        List<AuditLogEntry> results = new ArrayList<>();
+        String query = "SELECT * FROM audit_logs WHERE timestamp < ? ORDER BY timestamp, id LIMIT ?";
+        
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            stmt.setTimestamp(1, cutoff);
+            stmt.setInt(2, limit);
+            ResultSet rs = stmt.executeQuery();
+            
+            ColumnPlan plan = ColumnPlan.forResultSet(rs, AUDIT_COLUMNS);
+            while (rs.next()) {
+                results.add(AuditLogEntry.fromRow(
+                    plan.getLong(rs, 0),
+                    plan.getTimestamp(rs, 1),
+                    plan.getString(rs, 2),
+                    plan.getString(rs, 3),
+                    plan.getString(rs, 4)));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Audit query failed", e);
+        }
+        
+        return results;
+    }
+
+    /**
+     * SAFE METHOD: Removes audit entries by id, in chunked IN lists
+     */
+    public void deleteAuditLogs(List<Long> ids) {
+        try (Connection conn = dataSource.getConnection()) {
+            for (int from = 0; from < ids.size(); from += IN_CHUNK_SIZE) {
+                List<Long> chunk = ids.subList(from, Math.min(from + IN_CHUNK_SIZE, ids.size()));
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "DELETE FROM audit_logs WHERE id IN (" + placeholders(chunk.size()) + ")")) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        stmt.setLong(i + 1, chunk.get(i));
+                    }
+                    stmt.executeUpdate();
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Audit delete failed", e);
+        }
+    }
+
     /**
      * DEAD CODE SINK: Never called
      */
@@ -93,8 +273,9 @@ public class AccountRepository {
              ResultSet rs = stmt.executeQuery(query)) {
             
             List<AccountResponse> results = new ArrayList<>();
+            ColumnPlan plan = accountPlan(rs);
             while (rs.next()) {
-                results.add(mapResultToAccount(rs));
+                results.add(mapResultToAccount(rs, plan));
             }
             return results;
         } catch (SQLException e) {
@@ -114,7 +295,7 @@ public class AccountRepository {
             ResultSet rs = stmt.executeQuery();
             
             if (rs.next()) {
-                return mapResultToAccount(rs);
+                return mapResultToAccount(rs, ACCOUNT_BY_NAME);
             }
         } catch (SQLException e) {
             throw new RuntimeException("Database error", e);
@@ -123,21 +304,320 @@ public class AccountRepository {
         return null;
     }
 
+    // Single-account lookups read through the account cache
+
     public AccountResponse findById(String accountId) {
+        return accountLookupCache.findById(accountId, this::loadById);
+    }
+
+    public AccountResponse findByAccountNumber(String accountNumber) {
+        return accountLookupCache.findByAccountNumber(accountNumber, this::loadByAccountNumber, this::loadById);
+    }
+
+    public AccountResponse findPrimaryAccount(String userId) {
+        return accountLookupCache.findPrimaryAccount(userId, this::loadPrimaryAccount, this::loadById);
+    }
+
+    private AccountResponse loadById(String accountId) {
         String query = "SELECT * FROM accounts WHERE account_id = ?";
         return executeQueryForSingleAccount(query, accountId);
     }
 
-    public AccountResponse findByAccountNumber(String accountNumber) {
+    private AccountResponse loadByAccountNumber(String accountNumber) {
         String query = "SELECT * FROM accounts WHERE account_number = ?";
         return executeQueryForSingleAccount(query, accountNumber);
     }
 
-    public AccountResponse findPrimaryAccount(String userId) {
+    private AccountResponse loadPrimaryAccount(String userId) {
         String query = "SELECT * FROM accounts WHERE user_id = ? AND is_primary = true";
         return executeQueryForSingleAccount(query, userId);
     }
 
+    public Map<String, Object> getLookupCacheStats() {
+        return accountLookupCache.stats();
+    }
+
+    /**
+     * Keyset page of name search results ordered by account_id
+     * Parameterized LIKE with the same '%name%' semantics as the search sink
+     */
+    public List<AccountResponse> searchByNamePage(String name, String accountType,
+                                                  String afterAccountId, int limit) {
+        List<AccountResponse> results = new ArrayList<>();
+        String query = buildNameSearchQuery(accountType, afterAccountId) + " ORDER BY " + PAGE_KEY + " LIMIT ?";
+        
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            int index = bindNameSearch(stmt, name, accountType, afterAccountId);
+            stmt.setInt(index, limit);
+            ResultSet rs = stmt.executeQuery();
+            
+            ColumnPlan plan = accountPlan(rs);
+            while (rs.next()) {
+                results.add(mapResultToAccount(rs, plan));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Database error", e);
+        }
+        
+        return results;
+    }
+
+    /**
+     * Streams name search results row by row with a bounded fetch size,
+     * so memory stays flat regardless of how many rows match
+     */
+    public void streamByName(String name, String accountType, Consumer<AccountResponse> consumer) {
+        String query = buildNameSearchQuery(accountType, null) + " ORDER BY " + PAGE_KEY;
+        
+        try (Connection conn = dataSource.getConnection()) {
+            // Most drivers only honour the fetch size with a cursor, which needs a transaction
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setFetchSize(SCAN_FETCH_SIZE);
+                bindNameSearch(stmt, name, accountType, null);
+                ResultSet rs = stmt.executeQuery();
+                
+                ColumnPlan plan = accountPlan(rs);
+                while (rs.next()) {
+                    consumer.accept(mapResultToAccount(rs, plan));
+                }
+                conn.commit();
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Database error", e);
+        }
+    }
+
+    /**
+     * SAFE METHOD: Balance count/sum/min/max per group, computed by the database
+     * groupBy is "type", "currency" or anything else for a single "all" group;
+     * only whitelisted columns ever reach the SQL text
+     */
+    public Map<String, BalanceSummary> aggregateBalancesByName(String name, String groupBy) {
+        String groupColumn = groupColumn(groupBy);
+        String keyExpression = groupColumn != null ? groupColumn : "'all'";
+        String query = "SELECT " + keyExpression + " AS group_key, COUNT(*) AS row_count, " +
+                      "SUM(balance) AS balance_sum, MIN(balance) AS balance_min, MAX(balance) AS balance_max " +
+                      "FROM accounts WHERE account_name LIKE ?" +
+                      (groupColumn != null ? " GROUP BY " + groupColumn : "");
+        Map<String, BalanceSummary> summaries = new LinkedHashMap<>();
+        
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            stmt.setString(1, "%" + name + "%");
+            ResultSet rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                long count = rs.getLong(2);
+                if (count == 0) {
+                    continue;
+                }
+                String key = rs.getString(1);
+                summaries.put(key != null ? key : "unknown",
+                    new BalanceSummary(count, rs.getDouble(3), rs.getDouble(4), rs.getDouble(5)));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Aggregation query failed", e);
+        }
+        
+        return summaries;
+    }
+
+    private static String groupColumn(String groupBy) {
+        if ("type".equalsIgnoreCase(groupBy)) {
+            return "account_type";
+        }
+        if ("currency".equalsIgnoreCase(groupBy)) {
+            return "currency";
+        }
+        return null;
+    }
+
+    private String buildNameSearchQuery(String accountType, String afterAccountId) {
+        StringBuilder query = new StringBuilder("SELECT * FROM accounts WHERE account_name LIKE ?");
+        if (accountType != null && !accountType.isEmpty()) {
+            query.append(" AND account_type = ?");
+        }
+        if (afterAccountId != null) {
+            query.append(" AND ").append(PAGE_KEY).append(" > ?");
+        }
+        return query.toString();
+    }
+
+    private int bindNameSearch(PreparedStatement stmt, String name, String accountType,
+                               String afterAccountId) throws SQLException {
+        int index = 1;
+        stmt.setString(index++, "%" + name + "%");
+        if (accountType != null && !accountType.isEmpty()) {
+            stmt.setString(index++, accountType);
+        }
+        if (afterAccountId != null) {
+            stmt.setString(index++, afterAccountId);
+        }
+        return index;
+    }
+
+    /**
+     * Streams id, name and type of every account for the in-memory name index
+     */
+    public void scanAccountNames(Consumer<AccountResponse> consumer) {
+        String query = "SELECT account_id, account_name, account_type FROM accounts ORDER BY account_id";
+        
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            stmt.setFetchSize(SCAN_FETCH_SIZE);
+            ResultSet rs = stmt.executeQuery();
+            
+            ColumnPlan plan = accountPlan(rs);
+            while (rs.next()) {
+                AccountResponse account = new AccountResponse();
+                account.setAccountId(plan.getString(rs, COL_ACCOUNT_ID));
+                account.setAccountName(plan.getString(rs, COL_ACCOUNT_NAME));
+                account.setAccountType(plan.getString(rs, COL_ACCOUNT_TYPE));
+                consumer.accept(account);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Account scan failed", e);
+        }
+    }
+
+    /**
+     * Streams id, type, currency and balance of every named account for the balance summaries
+     * Accounts without a name are left out, as account_name LIKE '%' leaves them out.
+     */
+    public void scanAccountBalances(Consumer<AccountResponse> consumer) {
+        String query = "SELECT account_id, account_type, currency, balance FROM accounts " +
+                      "WHERE account_name IS NOT NULL ORDER BY account_id";
+        
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            stmt.setFetchSize(SCAN_FETCH_SIZE);
+            ResultSet rs = stmt.executeQuery();
+            
+            ColumnPlan plan = accountPlan(rs);
+            while (rs.next()) {
+                AccountResponse account = new AccountResponse();
+                account.setAccountId(plan.getString(rs, COL_ACCOUNT_ID));
+                account.setAccountType(plan.getString(rs, COL_ACCOUNT_TYPE));
+                account.setCurrency(plan.getString(rs, COL_CURRENCY));
+                account.setBalance(plan.getDouble(rs, COL_BALANCE));
+                consumer.accept(account);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Account scan failed", e);
+        }
+    }
+
+    /**
+     * Hydrates accounts by id, preserving the order of the given ids
+     * Reads straight from the database, bypassing the lookup cache
+     */
+    public List<AccountResponse> findAllByIds(List<String> accountIds) {
+        Map<String, AccountResponse> byId = loadByKeys("account_id", accountIds, AccountResponse::getAccountId);
+        
+        List<AccountResponse> results = new ArrayList<>(accountIds.size());
+        for (String accountId : accountIds) {
+            AccountResponse account = byId.get(accountId);
+            if (account != null) {
+                results.add(account);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Multi-get by account id, served from the lookup cache where possible
+     * Missing ids are simply absent from the returned map
+     */
+    public Map<String, AccountResponse> findByIds(Collection<String> accountIds) {
+        return accountLookupCache.findByIds(accountIds,
+            ids -> loadByKeys("account_id", ids, AccountResponse::getAccountId));
+    }
+
+    /**
+     * Multi-get by account number, served from the lookup cache where possible
+     */
+    public Map<String, AccountResponse> findByAccountNumbers(Collection<String> accountNumbers) {
+        return accountLookupCache.findByAccountNumbers(accountNumbers,
+            numbers -> loadByKeys("account_number", numbers, AccountResponse::getAccountNumber));
+    }
+
+    /**
+     * Loads accounts whose key column is in the given set, in chunked IN (...) queries
+     * Chunks are padded up to a few fixed sizes so the same statement text, and the
+     * driver's cached plan for it, is reused across calls
+     */
+    private Map<String, AccountResponse> loadByKeys(String column, Collection<String> keys,
+                                                    Function<AccountResponse, String> keyOf) {
+        Map<String, AccountResponse> byKey = new HashMap<>();
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+        distinct.remove(null);
+        if (distinct.isEmpty()) {
+            return byKey;
+        }
+        
+        Map<Integer, PreparedStatement> statements = new HashMap<>();
+        try (Connection conn = dataSource.getConnection()) {
+            try {
+                for (int from = 0; from < distinct.size(); from += IN_CHUNK_SIZE) {
+                    List<String> chunk = distinct.subList(from, Math.min(from + IN_CHUNK_SIZE, distinct.size()));
+                    int bucket = inListBucket(chunk.size());
+                    
+                    PreparedStatement stmt = statements.get(bucket);
+                    if (stmt == null) {
+                        stmt = conn.prepareStatement(
+                            "SELECT * FROM accounts WHERE " + column + " IN (" + placeholders(bucket) + ")");
+                        statements.put(bucket, stmt);
+                    }
+                    // Pad by repeating the last key - duplicates in an IN list are harmless
+                    for (int i = 0; i < bucket; i++) {
+                        stmt.setString(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+                    }
+                    
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        ColumnPlan plan = accountPlan(rs);
+                        while (rs.next()) {
+                            AccountResponse account = mapResultToAccount(rs, plan);
+                            byKey.put(keyOf.apply(account), account);
+                        }
+                    }
+                }
+            } finally {
+                for (PreparedStatement stmt : statements.values()) {
+                    stmt.close();
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Database error", e);
+        }
+        
+        return byKey;
+    }
+
+    private static int inListBucket(int size) {
+        for (int bucket : IN_LIST_BUCKETS) {
+            if (size <= bucket) {
+                return bucket;
+            }
+        }
+        return IN_CHUNK_SIZE;
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ",?");
+        }
+        return sb.toString();
+    }
+
     private AccountResponse executeQueryForSingleAccount(String query, String param) {
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
@@ -146,7 +626,7 @@ public class AccountRepository {
             ResultSet rs = stmt.executeQuery();
             
             if (rs.next()) {
-                return mapResultToAccount(rs);
+                return mapResultToAccount(rs, ACCOUNT_BY_NAME);
             }
         } catch (SQLException e) {
             throw new RuntimeException("Database error", e);
@@ -155,14 +635,19 @@ public class AccountRepository {
         return null;
     }
 
-    private AccountResponse mapResultToAccount(ResultSet rs) throws SQLException {
+    private static ColumnPlan accountPlan(ResultSet rs) throws SQLException {
+        return ColumnPlan.forResultSet(rs, ACCOUNT_COLUMNS);
+    }
+
+    private AccountResponse mapResultToAccount(ResultSet rs, ColumnPlan plan) throws SQLException {
         AccountResponse account = new AccountResponse();
-        account.setAccountId(rs.getString("account_id"));
-        account.setAccountName(rs.getString("account_name"));
-        account.setAccountNumber(rs.getString("account_number"));
-        account.setBalance(rs.getDouble("balance"));
-        account.setCurrency(rs.getString("currency"));
-        account.setEmail(rs.getString("email"));
+        account.setAccountId(plan.getString(rs, COL_ACCOUNT_ID));
+        account.setAccountName(plan.getString(rs, COL_ACCOUNT_NAME));
+        account.setAccountNumber(plan.getString(rs, COL_ACCOUNT_NUMBER));
+        account.setAccountType(plan.getString(rs, COL_ACCOUNT_TYPE));
+        account.setBalance(plan.getDouble(rs, COL_BALANCE));
+        account.setCurrency(plan.getString(rs, COL_CURRENCY));
+        account.setEmail(plan.getString(rs, COL_EMAIL));
         return account;
     }
 }
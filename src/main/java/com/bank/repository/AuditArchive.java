@@ -0,0 +1,549 @@
+package com.bank.repository;
+
+import com.bank.dto.AuditLogEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archival tier for old audit log entries
+ * A scheduled pass moves entries older than the configured age out of
+ * audit_logs into immutable gzip segment files. Each segment starts with an
+ * uncompressed header holding its min/max timestamp and a Bloom filter over
+ * user ids, which is kept in memory so a query only decompresses segments
+ * that can hold matching entries. A segment carries a pending marker until its
+ * rows are deleted from the table; a roll first finishes those deletes, so a
+ * failed delete or a crash never gets the same rows archived twice. Until
+ * then the rows are in both tiers, and readers drop the copies by entry id.
+ */
+@Component
+public class AuditArchive {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditArchive.class);
+
+    private static final int MAGIC = 0x41554431;
+    // Segments whose entries also carry the sub-millisecond part of their timestamp
+    private static final int MAGIC_NANOS = 0x41554432;
+    private static final String SEGMENT_PREFIX = "audit-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    // Next to a segment whose rows may still be in audit_logs
+    private static final String PENDING_SUFFIX = ".pending";
+
+    // Newest first by timestamp, then id - the order audit pages are served in
+    public static final Comparator<AuditLogEntry> NEWEST_FIRST =
+        Comparator.comparingLong(AuditLogEntry::timestampMillis)
+            .thenComparingInt(AuditLogEntry::subMillisNanos)
+            .thenComparingLong(AuditLogEntry::getId)
+            .reversed();
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Value("${bank.audit.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${bank.audit.archive.directory:audit-archive}")
+    private String directory;
+
+    @Value("${bank.audit.archive.age-days:365}")
+    private int ageDays;
+
+    @Value("${bank.audit.archive.segment-rows:100000}")
+    private int segmentRows;
+
+    @Value("${bank.audit.archive.max-segments-per-run:10}")
+    private int maxSegmentsPerRun;
+
+    private Path archiveDir;
+
+    // Newest segment first
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+
+    // Readers that need the table and the archive to agree hold the read side; a roll takes the write side
+    private final ReentrantReadWriteLock rollLock = new ReentrantReadWriteLock();
+
+    private final LongAdder archivedRows = new LongAdder();
+    private final LongAdder segmentsScanned = new LongAdder();
+    private final LongAdder segmentsSkipped = new LongAdder();
+
+    @PostConstruct
+    void loadSegments() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        archiveDir = Paths.get(directory);
+        Files.createDirectories(archiveDir);
+
+        List<Segment> loaded = new ArrayList<>();
+        List<Path> markers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(archiveDir)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.deleteIfExists(path);
+                } else if (name.endsWith(SEGMENT_SUFFIX + PENDING_SUFFIX)) {
+                    markers.add(path);
+                } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    loaded.add(readHeader(path));
+                }
+            }
+        }
+        for (Path marker : markers) {
+            Segment pending = null;
+            for (Segment segment : loaded) {
+                if (marker.equals(pendingMarker(segment.path))) {
+                    pending = segment;
+                }
+            }
+            if (pending != null) {
+                pending.rowsPending = true;
+            } else {
+                // The segment never made it to its final name, so its rows were never deleted
+                Files.deleteIfExists(marker);
+            }
+        }
+        loaded.sort(Comparator.comparingLong((Segment segment) -> segment.maxTimestamp).reversed());
+        segments.addAll(loaded);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Newest archived timestamp, Long.MIN_VALUE while nothing is archived
+     */
+    public long newestArchivedMillis() {
+        return segments.isEmpty() ? Long.MIN_VALUE : segments.get(0).maxTimestamp;
+    }
+
+    /**
+     * Runs the action with rolling held off, so no rows move from the table
+     * into the archive while it reads both
+     */
+    public void withoutRolling(Runnable action) {
+        rollLock.readLock().lock();
+        try {
+            action.run();
+        } finally {
+            rollLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Moves entries past the archive age into new segments
+     * Skipped while an export is reading; the next scheduled run catches up.
+     */
+    @Scheduled(fixedDelayString = "${bank.audit.archive.roll-ms:3600000}")
+    public synchronized void roll() {
+        if (!enabled) {
+            return;
+        }
+        if (!rollLock.writeLock().tryLock()) {
+            log.info("Audit archive roll skipped while an export is running");
+            return;
+        }
+        try {
+            rollSegments();
+        } finally {
+            rollLock.writeLock().unlock();
+        }
+    }
+
+    private void rollSegments() {
+        Timestamp cutoff = new Timestamp(System.currentTimeMillis() - Duration.ofDays(ageDays).toMillis());
+        try {
+            // Rows an earlier roll archived but could not delete would otherwise be archived again
+            for (Segment segment : segments) {
+                if (segment.rowsPending) {
+                    List<Long> ids = new ArrayList<>(segment.count);
+                    scan(segment, entry -> ids.add(entry.getId()));
+                    deleteArchivedRows(segment, ids);
+                }
+            }
+
+            for (int run = 0; run < maxSegmentsPerRun; run++) {
+                List<AuditLogEntry> entries = accountRepository.findAuditLogsBefore(cutoff, segmentRows);
+                if (entries.isEmpty()) {
+                    return;
+                }
+                Segment segment = writeSegment(entries);
+                segments.add(0, segment);
+                segments.sort(Comparator.comparingLong((Segment s) -> s.maxTimestamp).reversed());
+
+                List<Long> ids = new ArrayList<>(entries.size());
+                for (AuditLogEntry entry : entries) {
+                    ids.add(entry.getId());
+                }
+                deleteArchivedRows(segment, ids);
+                archivedRows.add(entries.size());
+                if (entries.size() < segmentRows) {
+                    return;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Audit archive roll failed", e);
+        }
+    }
+
+    private void deleteArchivedRows(Segment segment, List<Long> ids) throws IOException {
+        accountRepository.deleteAuditLogs(ids);
+        segment.rowsPending = false;
+        // A marker that comes back after a crash only repeats the delete
+        Files.deleteIfExists(pendingMarker(segment.path));
+    }
+
+    private static Path pendingMarker(Path segmentPath) {
+        return segmentPath.resolveSibling(segmentPath.getFileName() + PENDING_SUFFIX);
+    }
+
+    /**
+     * Archived entries of the user in [from, to) ordered after the cursor,
+     * at most limit of them, newest first. ALL matches every action.
+     * The cursor is (millis, subMillisNanos, id) of the last entry served.
+     */
+    public List<AuditLogEntry> search(String userId, String action, long fromMillis, long toMillis,
+                                      long[] after, int limit) {
+        PriorityQueue<AuditLogEntry> newest = new PriorityQueue<>(limit + 1, NEWEST_FIRST.reversed());
+        // Rows archived twice by an interrupted roll must not take two places on the page
+        Set<Long> seen = new HashSet<>();
+        for (Segment segment : segments) {
+            if (newest.size() >= limit && segment.maxTimestamp < newest.peek().timestampMillis()) {
+                // Segments are newest first, nothing further can make the page
+                break;
+            }
+            if (segment.maxTimestamp < fromMillis || segment.minTimestamp >= toMillis
+                    || (after != null && segment.minTimestamp > after[0])
+                    || !segment.users.mightContain(userId)) {
+                segmentsSkipped.increment();
+                continue;
+            }
+
+            segmentsScanned.increment();
+            try {
+                scan(segment, entry -> {
+                    if (matches(entry, userId, action, fromMillis, toMillis, after) && seen.add(entry.getId())) {
+                        newest.add(entry);
+                        if (newest.size() > limit) {
+                            newest.poll();
+                        }
+                    }
+                });
+            } catch (IOException e) {
+                throw new RuntimeException("Audit archive read failed", e);
+            }
+        }
+
+        List<AuditLogEntry> results = new ArrayList<>(newest);
+        results.sort(NEWEST_FIRST);
+        return results;
+    }
+
+    /**
+     * Hands every archived entry of the user in [from, to) to the consumer, oldest first
+     * Returns the newest entry handed over, or null when nothing matched
+     */
+    public AuditLogEntry stream(String userId, String action, long fromMillis, long toMillis,
+                                Consumer<AuditLogEntry> consumer) {
+        List<Segment> oldestFirst = new ArrayList<>(segments);
+        oldestFirst.sort(Comparator.comparingLong((Segment segment) -> segment.minTimestamp)
+            .thenComparing(segment -> segment.path));
+        AuditLogEntry[] newest = new AuditLogEntry[1];
+        Set<Long> seen = new HashSet<>();
+        for (Segment segment : oldestFirst) {
+            if (segment.maxTimestamp < fromMillis || segment.minTimestamp >= toMillis
+                    || !segment.users.mightContain(userId)) {
+                segmentsSkipped.increment();
+                continue;
+            }
+            segmentsScanned.increment();
+            try {
+                scan(segment, entry -> {
+                    if (matches(entry, userId, action, fromMillis, toMillis, null) && seen.add(entry.getId())) {
+                        consumer.accept(entry);
+                        if (newest[0] == null || NEWEST_FIRST.compare(entry, newest[0]) < 0) {
+                            newest[0] = entry;
+                        }
+                    }
+                });
+            } catch (IOException e) {
+                throw new RuntimeException("Audit archive read failed", e);
+            }
+        }
+        return newest[0];
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("segments", segments.size());
+        stats.put("archivedRows", archivedRows.sum());
+        stats.put("segmentsScanned", segmentsScanned.sum());
+        stats.put("segmentsSkipped", segmentsSkipped.sum());
+        return stats;
+    }
+
+    private static boolean matches(AuditLogEntry entry, String userId, String action,
+                                   long fromMillis, long toMillis, long[] after) {
+        long timestamp = entry.timestampMillis();
+        if (timestamp < fromMillis || timestamp >= toMillis) {
+            return false;
+        }
+        if (after != null && !isBefore(entry, after)) {
+            return false;
+        }
+        return Objects.equals(entry.getUserId(), userId)
+            && (AccountRepository.ALL_ACTIONS.equals(action) || Objects.equals(entry.getAction(), action));
+    }
+
+    /**
+     * Whether the entry sorts strictly older than the (millis, subMillisNanos, id) cursor
+     */
+    private static boolean isBefore(AuditLogEntry entry, long[] after) {
+        if (entry.timestampMillis() != after[0]) {
+            return entry.timestampMillis() < after[0];
+        }
+        if (entry.subMillisNanos() != after[1]) {
+            return entry.subMillisNanos() < after[1];
+        }
+        return entry.getId() < after[2];
+    }
+
+    private Segment writeSegment(List<AuditLogEntry> entries) throws IOException {
+        long minTimestamp = Long.MAX_VALUE;
+        long maxTimestamp = Long.MIN_VALUE;
+        BloomFilter users = new BloomFilter(entries.size());
+        for (AuditLogEntry entry : entries) {
+            minTimestamp = Math.min(minTimestamp, entry.timestampMillis());
+            maxTimestamp = Math.max(maxTimestamp, entry.timestampMillis());
+            users.add(entry.getUserId());
+        }
+
+        String name = String.format("%s%020d-%020d%s",
+            SEGMENT_PREFIX, minTimestamp, entries.get(0).getId(), SEGMENT_SUFFIX);
+        Path path = archiveDir.resolve(name);
+        Path temp = archiveDir.resolve(name + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+            DataOutputStream header = new DataOutputStream(new BufferedOutputStream(file));
+            header.writeInt(MAGIC_NANOS);
+            header.writeLong(minTimestamp);
+            header.writeLong(maxTimestamp);
+            header.writeInt(entries.size());
+            users.writeTo(header);
+            header.flush();
+
+            GZIPOutputStream gzip = new GZIPOutputStream(file);
+            DataOutputStream body = new DataOutputStream(new BufferedOutputStream(gzip));
+            for (AuditLogEntry entry : entries) {
+                body.writeLong(entry.getId());
+                body.writeLong(entry.timestampMillis());
+                body.writeInt(entry.subMillisNanos());
+                writeString(body, entry.getUserId());
+                writeString(body, entry.getAction());
+                writeString(body, entry.getDetails());
+            }
+            body.flush();
+            gzip.finish();
+            // The rows are deleted from the table next, so the segment must be on disk first
+            file.getFD().sync();
+        }
+        // Published together with the segment by the directory sync below
+        Files.write(pendingMarker(path), new byte[0]);
+        // Segments are only visible under their final name once completely written
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        // The rename lives in the directory; without this a crash could bring back only the .tmp
+        // file, which startup discards, after the rows are gone from the table
+        try (FileChannel dir = FileChannel.open(archiveDir, StandardOpenOption.READ)) {
+            dir.force(true);
+        }
+        Segment segment = new Segment(path, true, minTimestamp, maxTimestamp, entries.size(), users);
+        segment.rowsPending = true;
+        return segment;
+    }
+
+    private static Segment readHeader(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            int magic = in.readInt();
+            if (magic != MAGIC && magic != MAGIC_NANOS) {
+                throw new IOException("Not an audit segment: " + path);
+            }
+            long minTimestamp = in.readLong();
+            long maxTimestamp = in.readLong();
+            int count = in.readInt();
+            return new Segment(path, magic == MAGIC_NANOS, minTimestamp, maxTimestamp, count,
+                BloomFilter.readFrom(in));
+        }
+    }
+
+    private static void scan(Segment segment, Consumer<AuditLogEntry> consumer) throws IOException {
+        try (InputStream file = Files.newInputStream(segment.path)) {
+            DataInputStream header = new DataInputStream(file);
+            header.readInt();
+            header.readLong();
+            header.readLong();
+            header.readInt();
+            BloomFilter.readFrom(header);
+
+            try (DataInputStream body = new DataInputStream(new BufferedInputStream(new GZIPInputStream(file)))) {
+                for (int i = 0; i < segment.count; i++) {
+                    long id = body.readLong();
+                    long timestamp = body.readLong();
+                    int subMillisNanos = segment.subMillisNanos ? body.readInt() : 0;
+                    consumer.accept(new AuditLogEntry(id, timestamp, subMillisNanos,
+                        readString(body), readString(body), readString(body)));
+                }
+            } catch (EOFException e) {
+                throw new IOException("Truncated audit segment: " + segment.path, e);
+            }
+        }
+    }
+
+    // Length-prefixed UTF-8, -1 for null; details can exceed writeUTF's 64KB limit
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class Segment {
+        final Path path;
+        final boolean subMillisNanos;
+        final long minTimestamp;
+        final long maxTimestamp;
+        final int count;
+        final BloomFilter users;
+        // Its rows may still be in audit_logs; only touched by the roll and at startup
+        volatile boolean rowsPending;
+
+        Segment(Path path, boolean subMillisNanos, long minTimestamp, long maxTimestamp,
+                int count, BloomFilter users) {
+            this.path = path;
+            this.subMillisNanos = subMillisNanos;
+            this.minTimestamp = minTimestamp;
+            this.maxTimestamp = maxTimestamp;
+            this.count = count;
+            this.users = users;
+        }
+    }
+
+    /**
+     * Bloom filter sized at ~10 bits per entry with 7 probes (about 1% false positives)
+     */
+    private static final class BloomFilter {
+        private static final int BITS_PER_ENTRY = 10;
+        private static final int PROBES = 7;
+
+        private final long[] words;
+
+        BloomFilter(int expectedEntries) {
+            this(new long[Math.max(1, (expectedEntries * BITS_PER_ENTRY + 63) / 64)]);
+        }
+
+        private BloomFilter(long[] words) {
+            this.words = words;
+        }
+
+        void add(String value) {
+            long hash = hash(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            long bits = (long) words.length * 64;
+            for (int i = 0; i < PROBES; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, bits);
+                words[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        boolean mightContain(String value) {
+            long hash = hash(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            long bits = (long) words.length * 64;
+            for (int i = 0; i < PROBES; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, bits);
+                if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(words.length);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+        }
+
+        static BloomFilter readFrom(DataInputStream in) throws IOException {
+            long[] words = new long[in.readInt()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = in.readLong();
+            }
+            return new BloomFilter(words);
+        }
+
+        // 64-bit FNV-1a over the UTF-16 chars
+        private static long hash(String value) {
+            String text = String.valueOf(value);
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < text.length(); i++) {
+                hash ^= text.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+    }
+}
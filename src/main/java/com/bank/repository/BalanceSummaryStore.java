@@ -0,0 +1,280 @@
+package com.bank.repository;
+
+import com.bank.dto.AccountResponse;
+import com.bank.dto.BalanceSummary;
+import com.bank.event.AccountChangeEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Materialized balance summaries over all accounts, by type and by currency
+ * Seeded from a full scan and then maintained per account: change events mark
+ * accounts dirty, a short periodic pass re-reads just those accounts and moves
+ * their old contribution out of the groups and the new one in. A slower pass
+ * rescans every account and corrects whatever drifted. Accounts without a
+ * name are not counted, matching the SQL aggregate's account_name LIKE '%'.
+ */
+@Component
+public class BalanceSummaryStore {
+
+    private static final Logger log = LoggerFactory.getLogger(BalanceSummaryStore.class);
+
+    private static final int REFRESH_BATCH = 500;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    // What each account currently contributes to the groups
+    private final ConcurrentHashMap<String, Contribution> contributions = new ConcurrentHashMap<>();
+
+    private final Map<String, GroupTotals> byType = new ConcurrentHashMap<>();
+    private final Map<String, GroupTotals> byCurrency = new ConcurrentHashMap<>();
+    private final GroupTotals overall = new GroupTotals();
+
+    private final Set<String> dirtyAccounts = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean ready;
+
+    private final LongAdder refreshedAccounts = new LongAdder();
+    private final LongAdder reconciliations = new LongAdder();
+    private volatile int lastDriftCount;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Summaries for groupBy "type", "currency", or one "all" group otherwise
+     */
+    public Map<String, BalanceSummary> summaries(String groupBy) {
+        Map<String, BalanceSummary> summaries = new LinkedHashMap<>();
+        if ("type".equalsIgnoreCase(groupBy)) {
+            snapshot(byType, summaries);
+        } else if ("currency".equalsIgnoreCase(groupBy)) {
+            snapshot(byCurrency, summaries);
+        } else {
+            BalanceSummary all = overall.toSummary();
+            if (all != null) {
+                summaries.put("all", all);
+            }
+        }
+        return summaries;
+    }
+
+    @EventListener
+    public void onAccountChange(AccountChangeEvent event) {
+        dirtyAccounts.addAll(event.getAccountIds());
+    }
+
+    /**
+     * Applies the accounts changed since the last pass
+     */
+    @Scheduled(fixedDelayString = "${bank.reports.balance-summary.refresh-ms:1000}")
+    public void refreshDirty() {
+        if (!ready || dirtyAccounts.isEmpty()) {
+            return;
+        }
+        List<String> batch = new ArrayList<>(REFRESH_BATCH);
+        Iterator<String> dirty = dirtyAccounts.iterator();
+        while (dirty.hasNext()) {
+            batch.add(dirty.next());
+            // Removed before the read, so a change landing during the read marks it dirty again
+            dirty.remove();
+            if (batch.size() == REFRESH_BATCH || !dirty.hasNext()) {
+                refresh(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Seeds the summaries on startup and then periodically rescans every
+     * account, correcting the ones whose contribution no longer matches
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${bank.reports.balance-summary.reconcile-ms:300000}")
+    public void reconcile() {
+        Set<String> seen = new HashSet<>();
+        int[] drifted = new int[1];
+        try {
+            accountRepository.scanAccountBalances(account -> {
+                seen.add(account.getAccountId());
+                if (apply(account.getAccountId(), Contribution.of(account))) {
+                    drifted[0]++;
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Balance summary reconciliation failed", e);
+            return;
+        }
+        for (String accountId : new ArrayList<>(contributions.keySet())) {
+            if (!seen.contains(accountId) && apply(accountId, null)) {
+                drifted[0]++;
+            }
+        }
+
+        reconciliations.increment();
+        lastDriftCount = drifted[0];
+        if (ready && drifted[0] > 0) {
+            log.warn("Corrected balance summaries for {} accounts", drifted[0]);
+        }
+        ready = true;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", ready);
+        stats.put("accounts", contributions.size());
+        stats.put("dirty", dirtyAccounts.size());
+        stats.put("refreshedAccounts", refreshedAccounts.sum());
+        stats.put("reconciliations", reconciliations.sum());
+        stats.put("lastDriftCount", lastDriftCount);
+        return stats;
+    }
+
+    private void refresh(List<String> accountIds) {
+        List<AccountResponse> accounts;
+        try {
+            accounts = accountRepository.findAllByIds(accountIds);
+        } catch (RuntimeException e) {
+            dirtyAccounts.addAll(accountIds);
+            log.warn("Balance summary refresh failed", e);
+            return;
+        }
+        Set<String> found = new HashSet<>();
+        for (AccountResponse account : accounts) {
+            if (account.getAccountName() == null) {
+                // Left out like the seed scan leaves it out; removed below if it was counted
+                continue;
+            }
+            found.add(account.getAccountId());
+            apply(account.getAccountId(), Contribution.of(account));
+        }
+        for (String accountId : accountIds) {
+            if (!found.contains(accountId)) {
+                apply(accountId, null);
+            }
+        }
+        refreshedAccounts.add(accountIds.size());
+    }
+
+    /**
+     * Replaces an account's contribution (null removes it), true when it changed
+     */
+    private boolean apply(String accountId, Contribution next) {
+        boolean[] changed = new boolean[1];
+        contributions.compute(accountId, (id, previous) -> {
+            if (Objects.equals(previous, next)) {
+                return previous;
+            }
+            changed[0] = true;
+            if (previous != null) {
+                group(byType, previous.type).remove(previous.balance);
+                group(byCurrency, previous.currency).remove(previous.balance);
+                overall.remove(previous.balance);
+            }
+            if (next != null) {
+                group(byType, next.type).add(next.balance);
+                group(byCurrency, next.currency).add(next.balance);
+                overall.add(next.balance);
+            }
+            return next;
+        });
+        return changed[0];
+    }
+
+    private static GroupTotals group(Map<String, GroupTotals> groups, String key) {
+        return groups.computeIfAbsent(key, k -> new GroupTotals());
+    }
+
+    private static void snapshot(Map<String, GroupTotals> groups, Map<String, BalanceSummary> into) {
+        groups.forEach((key, totals) -> {
+            BalanceSummary summary = totals.toSummary();
+            if (summary != null) {
+                into.put(key, summary);
+            }
+        });
+    }
+
+    private static final class Contribution {
+        final String type;
+        final String currency;
+        final double balance;
+
+        private Contribution(String type, String currency, double balance) {
+            this.type = type;
+            this.currency = currency;
+            this.balance = balance;
+        }
+
+        static Contribution of(AccountResponse account) {
+            return new Contribution(
+                account.getAccountType() != null ? account.getAccountType() : "unknown",
+                account.getCurrency() != null ? account.getCurrency() : "unknown",
+                account.getBalance());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Contribution)) {
+                return false;
+            }
+            Contribution other = (Contribution) o;
+            return Double.compare(balance, other.balance) == 0
+                && type.equals(other.type) && currency.equals(other.currency);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, currency, balance);
+        }
+    }
+
+    /**
+     * Count and sum of one group, plus a balance multiset so min and max
+     * survive removals; guarded by its own monitor. The sum is kept in whole
+     * cents so adding and later removing a balance cancels out exactly.
+     */
+    private static final class GroupTotals {
+        private long count;
+        private long sumCents;
+        private final TreeMap<Double, Integer> balances = new TreeMap<>();
+
+        synchronized void add(double balance) {
+            count++;
+            sumCents += Math.round(balance * 100);
+            balances.merge(balance, 1, Integer::sum);
+        }
+
+        synchronized void remove(double balance) {
+            count--;
+            sumCents -= Math.round(balance * 100);
+            balances.computeIfPresent(balance, (b, n) -> n == 1 ? null : n - 1);
+        }
+
+        /**
+         * Summary of the group, null once its last account has left it
+         */
+        synchronized BalanceSummary toSummary() {
+            if (count == 0) {
+                return null;
+            }
+            return new BalanceSummary(count, sumCents / 100.0, balances.firstKey(), balances.lastKey());
+        }
+    }
+}
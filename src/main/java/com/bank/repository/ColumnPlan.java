@@ -0,0 +1,81 @@
+package com.bank.repository;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Locale;
+
+/**
+ * Column-index plan for mapping rows positionally
+ * Resolving a column by name makes the driver search the column list on every
+ * call; a plan does that once per result set, so mapping its rows only uses
+ * positional accessors. Reading a column the result does not have throws, as
+ * the by-name accessor would.
+ *
+ * Resolving costs a metadata pass, which a single-row read does not win back;
+ * those use a by-name plan, which just reads through the column labels.
+ */
+final class ColumnPlan {
+
+    private final String[] columns;
+    // 1-based JDBC position per requested column, 0 when the result does not have it; null reads by name
+    private final int[] positions;
+
+    private ColumnPlan(String[] columns, int[] positions) {
+        this.columns = columns;
+        this.positions = positions;
+    }
+
+    /**
+     * Plan for the given columns against this result's metadata
+     * Only columns that are read have to be present, so one column list can
+     * serve queries that select a subset of it.
+     */
+    static ColumnPlan forResultSet(ResultSet rs, String... columns) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int count = metaData.getColumnCount();
+        int[] positions = new int[columns.length];
+        for (int i = count; i >= 1; i--) {
+            String label = metaData.getColumnLabel(i).toLowerCase(Locale.ROOT);
+            for (int c = 0; c < columns.length; c++) {
+                // Walking backwards leaves the first occurrence of a duplicated label, as by-name lookup finds
+                if (columns[c].equals(label)) {
+                    positions[c] = i;
+                }
+            }
+        }
+        return new ColumnPlan(columns, positions);
+    }
+
+    /**
+     * Plan that reads the given columns by name, for results of one row
+     */
+    static ColumnPlan byName(String... columns) {
+        return new ColumnPlan(columns, null);
+    }
+
+    String getString(ResultSet rs, int column) throws SQLException {
+        return positions == null ? rs.getString(columns[column]) : rs.getString(position(column));
+    }
+
+    double getDouble(ResultSet rs, int column) throws SQLException {
+        return positions == null ? rs.getDouble(columns[column]) : rs.getDouble(position(column));
+    }
+
+    long getLong(ResultSet rs, int column) throws SQLException {
+        return positions == null ? rs.getLong(columns[column]) : rs.getLong(position(column));
+    }
+
+    Timestamp getTimestamp(ResultSet rs, int column) throws SQLException {
+        return positions == null ? rs.getTimestamp(columns[column]) : rs.getTimestamp(position(column));
+    }
+
+    private int position(int column) throws SQLException {
+        int position = positions[column];
+        if (position == 0) {
+            throw new SQLException("Column '" + columns[column] + "' is not in the result");
+        }
+        return position;
+    }
+}
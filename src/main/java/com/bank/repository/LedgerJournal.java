@@ -0,0 +1,559 @@
+package com.bank.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal for transfers
+ * Each transfer is written to a memory-mapped segment file as a length- and
+ * CRC32-framed record and acknowledged once it is in the journal; a background
+ * drainer then inserts the records into the transactions table in journal order
+ * and checkpoints the last sequence it persisted. Fully drained segments are
+ * deleted. On startup every record after the checkpoint is replayed, stopping
+ * at the first torn or corrupt record of a segment.
+ *
+ * Delivery to the database is at-least-once: a crash or a failed insert
+ * before the checkpoint sends the record again. The insert is keyed by
+ * transaction id, so a record that already reached the table is skipped.
+ * A record the database rejects as invalid (SQLState class 22 or 23, such as
+ * a deleted account) is set aside after max-attempts into the dead-letter
+ * file, so it cannot hold back the rest of the journal. Any other failure is
+ * retried until it succeeds, because an outage fails every record alike.
+ */
+@Component
+public class LedgerJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerJournal.class);
+
+    private static final String SEGMENT_PREFIX = "ledger-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKPOINT_FILE = "drained.seq";
+    private static final String DEAD_LETTER_FILE = "dead-letter.log";
+
+    // Record frame: payload length, CRC32 of the payload, payload; a zero length marks the end
+    private static final int FRAME_HEADER_BYTES = 8;
+    private static final int MIN_SEGMENT_BYTES = 64 * 1024;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Value("${bank.ledger.enabled:false}")
+    private boolean enabled;
+
+    @Value("${bank.ledger.directory:ledger}")
+    private String directory;
+
+    @Value("${bank.ledger.segment-bytes:67108864}")
+    private int segmentBytes;
+
+    // Flush every append to the device; without it a record survives a process crash but not a host crash
+    @Value("${bank.ledger.force-on-append:true}")
+    private boolean forceOnAppend;
+
+    @Value("${bank.ledger.drain-batch:256}")
+    private int drainBatch;
+
+    @Value("${bank.ledger.retry-ms:1000}")
+    private long retryMillis;
+
+    @Value("${bank.ledger.max-attempts:5}")
+    private int maxAttempts;
+
+    private Path journalDir;
+
+    private final Object appendLock = new Object();
+    private Segment activeSegment;
+    private long nextSequence;
+
+    // Closed segments that still hold undrained records, by first sequence
+    private final ConcurrentSkipListMap<Long, Segment> retainedSegments = new ConcurrentSkipListMap<>();
+
+    private final LinkedBlockingQueue<JournalEntry> undrained = new LinkedBlockingQueue<>();
+    private volatile long drainedSequence;
+
+    // Records not yet in the database, including the batch being drained; removed under drainLock
+    private final ConcurrentSkipListMap<Long, JournalEntry> notPersisted = new ConcurrentSkipListMap<>();
+    private final Object drainLock = new Object();
+
+    private Thread drainerThread;
+    private volatile boolean running;
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder drained = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder drainFailures = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        journalDir = Paths.get(directory);
+        Files.createDirectories(journalDir);
+        drainedSequence = readCheckpoint();
+
+        long lastSequence = replay();
+        nextSequence = Math.max(lastSequence, drainedSequence) + 1;
+        // Never append behind a possibly torn tail; new records always start a fresh segment
+        activeSegment = openSegment(nextSequence);
+
+        running = true;
+        drainerThread = new Thread(this::runDrainer, "ledger-drainer");
+        drainerThread.setDaemon(true);
+        drainerThread.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException, IOException {
+        if (drainerThread == null) {
+            return;
+        }
+        running = false;
+        drainerThread.join(TimeUnit.SECONDS.toMillis(10));
+        synchronized (appendLock) {
+            activeSegment.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Journals one transfer and returns its sequence once the record is written
+     * The transfer keeps the time it was made, however late it is drained.
+     */
+    public long append(String transactionId, String fromAccountId, String toAccountId, double amount,
+                       Timestamp occurredAt) {
+        if (!running) {
+            throw new IllegalStateException("Ledger journal is not running");
+        }
+        synchronized (appendLock) {
+            long sequence = nextSequence;
+            JournalEntry entry = new JournalEntry(sequence, transactionId, fromAccountId, toAccountId, amount,
+                occurredAt.getTime());
+            try {
+                byte[] payload = entry.encode();
+                if (payload.length + FRAME_HEADER_BYTES > segmentCapacity() - Integer.BYTES) {
+                    throw new IllegalArgumentException("Journal record exceeds the segment size");
+                }
+                if (activeSegment.buffer.remaining() < payload.length + FRAME_HEADER_BYTES + Integer.BYTES) {
+                    rollSegment(sequence);
+                }
+                writeRecord(activeSegment.buffer, payload);
+                if (forceOnAppend) {
+                    activeSegment.buffer.force();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Ledger append failed", e);
+            }
+            activeSegment.lastSequence = sequence;
+            nextSequence = sequence + 1;
+            notPersisted.put(sequence, entry);
+            undrained.add(entry);
+            appended.increment();
+            return sequence;
+        }
+    }
+
+    /**
+     * An account's stored balance adjusted by its journaled transfers that have
+     * not reached the database yet, or empty when the account is unknown. The
+     * drainer is held off while the stored balance is read, so a record being
+     * drained is counted exactly once.
+     */
+    public OptionalDouble projectBalance(String accountId, Supplier<OptionalDouble> storedBalance) {
+        synchronized (drainLock) {
+            OptionalDouble stored = storedBalance.get();
+            if (!stored.isPresent()) {
+                return stored;
+            }
+            double balance = stored.getAsDouble();
+            for (JournalEntry entry : notPersisted.values()) {
+                if (entry.fromAccountId.equals(accountId)) {
+                    balance -= entry.amount;
+                }
+                if (entry.toAccountId.equals(accountId)) {
+                    balance += entry.amount;
+                }
+            }
+            return OptionalDouble.of(balance);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("appended", appended.sum());
+        stats.put("drained", drained.sum());
+        stats.put("replayed", replayed.sum());
+        stats.put("drainFailures", drainFailures.sum());
+        stats.put("deadLettered", deadLettered.sum());
+        stats.put("backlog", undrained.size());
+        stats.put("drainedSequence", drainedSequence);
+        stats.put("segments", retainedSegments.size() + (activeSegment != null ? 1 : 0));
+        return stats;
+    }
+
+    private int segmentCapacity() {
+        return Math.max(segmentBytes, MIN_SEGMENT_BYTES);
+    }
+
+    private void rollSegment(long firstSequence) throws IOException {
+        Segment closed = activeSegment;
+        closed.close();
+        if (closed.lastSequence > drainedSequence) {
+            retainedSegments.put(closed.firstSequence, closed);
+        } else {
+            Files.deleteIfExists(closed.path);
+        }
+        activeSegment = openSegment(firstSequence);
+    }
+
+    private Segment openSegment(long firstSequence) throws IOException {
+        Path path = journalDir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path,
+            StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Mapping past the end grows the file zero-filled, so unwritten space reads as the end marker
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentCapacity());
+        // Forcing appends syncs the file's contents, not its directory entry; without this a host crash
+        // could drop the whole segment along with records already acknowledged
+        syncDirectory();
+        return new Segment(path, channel, buffer, firstSequence);
+    }
+
+    private static void writeRecord(MappedByteBuffer buffer, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        // Length goes last so a torn write is never seen as a complete record
+        int start = buffer.position();
+        buffer.position(start + Integer.BYTES);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(payload);
+        buffer.putInt(start, payload.length);
+    }
+
+    /**
+     * Re-queues every intact record after the checkpoint and returns the highest sequence seen
+     */
+    private long replay() throws IOException {
+        List<Path> segmentFiles = new ArrayList<>();
+        try (Stream<Path> files = Files.list(journalDir)) {
+            files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().forEach(segmentFiles::add);
+        }
+
+        long lastSequence = 0;
+        for (Path path : segmentFiles) {
+            long firstSequence = -1;
+            long segmentLast = 0;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                while (buffer.remaining() >= FRAME_HEADER_BYTES) {
+                    int length = buffer.getInt();
+                    if (length <= 0 || length > buffer.remaining() - Integer.BYTES) {
+                        break;
+                    }
+                    int expectedCrc = buffer.getInt();
+                    byte[] payload = new byte[length];
+                    buffer.get(payload);
+                    CRC32 crc = new CRC32();
+                    crc.update(payload);
+                    if ((int) crc.getValue() != expectedCrc) {
+                        log.warn("Ledger segment {} has a corrupt record, ignoring the rest of it", path);
+                        break;
+                    }
+
+                    JournalEntry entry = JournalEntry.decode(payload);
+                    if (firstSequence < 0) {
+                        firstSequence = entry.sequence;
+                    }
+                    segmentLast = entry.sequence;
+                    if (entry.sequence > drainedSequence) {
+                        notPersisted.put(entry.sequence, entry);
+                        undrained.add(entry);
+                        replayed.increment();
+                    }
+                }
+            }
+
+            lastSequence = Math.max(lastSequence, segmentLast);
+            if (segmentLast > drainedSequence) {
+                retainedSegments.put(firstSequence, new Segment(path, null, null, firstSequence, segmentLast));
+            } else {
+                Files.deleteIfExists(path);
+            }
+        }
+
+        if (replayed.sum() > 0) {
+            log.info("Replaying {} undrained ledger records", replayed.sum());
+        }
+        return lastSequence;
+    }
+
+    private void runDrainer() {
+        List<JournalEntry> batch = new ArrayList<>(drainBatch);
+        while (running || !undrained.isEmpty()) {
+            try {
+                JournalEntry first = undrained.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                undrained.drainTo(batch, drainBatch - 1);
+
+                Map<Long, Integer> attempts = new HashMap<>();
+                List<JournalEntry> remaining = batch;
+                while (!(remaining = persist(remaining, attempts)).isEmpty()) {
+                    if (!running) {
+                        // Left in the journal for the next start to replay
+                        return;
+                    }
+                    Thread.sleep(retryMillis);
+                }
+
+                drainedSequence = batch.get(batch.size() - 1).sequence;
+                drained.add(batch.size());
+                writeCheckpoint(drainedSequence);
+                deleteDrainedSegments();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                log.warn("Ledger checkpoint failed", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Inserts the records and returns the ones to retry; each record succeeds
+     * or fails on its own, so one bad record does not hold back the others
+     */
+    private List<JournalEntry> persist(List<JournalEntry> batch, Map<Long, Integer> attempts) {
+        synchronized (drainLock) {
+            List<CompletableFuture<Void>> inserts = new ArrayList<>(batch.size());
+            for (JournalEntry entry : batch) {
+                inserts.add(transactionRepository.createTransactionAsync(entry.transactionId,
+                    entry.fromAccountId, entry.toAccountId, entry.amount, new Timestamp(entry.occurredAtMillis)));
+            }
+            List<JournalEntry> retry = new ArrayList<>();
+            Throwable lastError = null;
+            for (int i = 0; i < batch.size(); i++) {
+                JournalEntry entry = batch.get(i);
+                try {
+                    inserts.get(i).join();
+                } catch (RuntimeException e) {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    int attempt = attempts.merge(entry.sequence, 1, Integer::sum);
+                    if (!isRejectedRecord(cause) || attempt < maxAttempts || !deadLetter(entry, cause)) {
+                        retry.add(entry);
+                        lastError = cause;
+                        continue;
+                    }
+                }
+                notPersisted.remove(entry.sequence);
+            }
+            if (!retry.isEmpty()) {
+                drainFailures.increment();
+                log.warn("Draining {} of {} ledger records failed, retrying", retry.size(), batch.size(), lastError);
+            }
+            return retry;
+        }
+    }
+
+    // Data exceptions and integrity violations fail the same way on every attempt
+    private static boolean isRejectedRecord(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                String state = ((SQLException) cause).getSQLState();
+                if (state != null && (state.startsWith("22") || state.startsWith("23"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Appends the record to the dead-letter file for manual repair, false when that failed
+     */
+    private boolean deadLetter(JournalEntry entry, Throwable error) {
+        String line = entry.sequence + "\t" + entry.transactionId + "\t" + entry.fromAccountId + "\t"
+            + entry.toAccountId + "\t" + entry.amount + "\t" + entry.occurredAtMillis + "\t"
+            + String.valueOf(error.getMessage()).replace('\n', ' ') + "\n";
+        Path path = journalDir.resolve(DEAD_LETTER_FILE);
+        try {
+            boolean created = !Files.exists(path);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                channel.write(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)));
+                channel.force(true);
+            }
+            if (created) {
+                syncDirectory();
+            }
+        } catch (IOException e) {
+            log.warn("Writing ledger record {} to the dead-letter file failed", entry.sequence, e);
+            return false;
+        }
+        deadLettered.increment();
+        log.error("Ledger record {} (transaction {}) was rejected by the database, moved to {}",
+            entry.sequence, entry.transactionId, path, error);
+        return true;
+    }
+
+    private void deleteDrainedSegments() throws IOException {
+        Iterator<Segment> segments = retainedSegments.values().iterator();
+        while (segments.hasNext()) {
+            Segment segment = segments.next();
+            if (segment.lastSequence > drainedSequence) {
+                break;
+            }
+            Files.deleteIfExists(segment.path);
+            segments.remove();
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path checkpoint = journalDir.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(checkpoint)) {
+            return 0;
+        }
+        String content = new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8).trim();
+        try {
+            return Long.parseLong(content);
+        } catch (NumberFormatException e) {
+            // Replaying from the start is safe, records already in the table are skipped by transaction id
+            log.warn("Ledger checkpoint is unreadable, replaying every retained record");
+            return 0;
+        }
+    }
+
+    private void writeCheckpoint(long sequence) throws IOException {
+        Path temp = journalDir.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(Long.toString(sequence).getBytes(StandardCharsets.UTF_8)));
+            // On disk before the rename, so a crash cannot leave an empty checkpoint behind
+            channel.force(true);
+        }
+        Files.move(temp, journalDir.resolve(CHECKPOINT_FILE),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+    }
+
+    private void syncDirectory() throws IOException {
+        try (FileChannel dir = FileChannel.open(journalDir, StandardOpenOption.READ)) {
+            dir.force(true);
+        }
+    }
+
+    private static final class Segment {
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        final long firstSequence;
+        volatile long lastSequence;
+
+        Segment(Path path, FileChannel channel, MappedByteBuffer buffer, long firstSequence) {
+            this(path, channel, buffer, firstSequence, firstSequence - 1);
+        }
+
+        Segment(Path path, FileChannel channel, MappedByteBuffer buffer, long firstSequence, long lastSequence) {
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.firstSequence = firstSequence;
+            this.lastSequence = lastSequence;
+        }
+
+        void close() throws IOException {
+            if (channel != null && channel.isOpen()) {
+                buffer.force();
+                channel.close();
+            }
+        }
+    }
+
+    private static final class JournalEntry {
+        final long sequence;
+        final String transactionId;
+        final String fromAccountId;
+        final String toAccountId;
+        final double amount;
+        final long occurredAtMillis;
+
+        JournalEntry(long sequence, String transactionId, String fromAccountId, String toAccountId,
+                     double amount, long occurredAtMillis) {
+            this.sequence = sequence;
+            this.transactionId = transactionId;
+            this.fromAccountId = fromAccountId;
+            this.toAccountId = toAccountId;
+            this.amount = amount;
+            this.occurredAtMillis = occurredAtMillis;
+        }
+
+        byte[] encode() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeLong(sequence);
+                out.writeUTF(transactionId);
+                out.writeUTF(fromAccountId);
+                out.writeUTF(toAccountId);
+                out.writeDouble(amount);
+                out.writeLong(occurredAtMillis);
+            }
+            return bytes.toByteArray();
+        }
+
+        static JournalEntry decode(byte[] payload) throws IOException {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+                return new JournalEntry(in.readLong(), in.readUTF(), in.readUTF(), in.readUTF(), in.readDouble(),
+                    in.readLong());
+            }
+        }
+    }
+}
@@ -1,11 +1,10 @@
 package com.bank.repository;
 
+import com.bank.dto.LoanRecord;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import javax.sql.DataSource;
 import java.sql.*;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Loan repository with vulnerable and safe methods
@@ -40,7 +39,7 @@ public class LoanRepository {
     /**
      * SAFE METHOD: Parameterized query
      */
-    public Map<String, Object> findLoanByIdSafe(String loanId) {
+    public LoanRecord findLoanByIdSafe(String loanId) {
         String query = "SELECT * FROM loan_applications WHERE loan_id = ?";
         
         try (Connection conn = dataSource.getConnection();
@@ -50,12 +49,11 @@ public class LoanRepository {
             ResultSet rs = stmt.executeQuery();
             
             if (rs.next()) {
-                Map<String, Object> loan = new HashMap<>();
-                loan.put("loanId", rs.getString("loan_id"));
-                loan.put("amount", rs.getDouble("amount"));
-                loan.put("status", rs.getString("status"));
-                loan.put("employerName", rs.getString("employer_name"));
-                return loan;
+                return new LoanRecord(
+                    rs.getString("loan_id"),
+                    rs.getDouble("amount"),
+                    rs.getString("status"),
+                    rs.getString("employer_name"));
             }
         } catch (SQLException e) {
             throw new RuntimeException("Loan query failed", e);
@@ -0,0 +1,148 @@
+package com.bank.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Maintained per-account sum of PENDING transaction amounts
+ * Lock-free striped accumulators, so a balance check is one map lookup instead
+ * of a SUM() over the account's pending rows. A periodic reconciliation pass
+ * compares every total with the database and corrects any drift.
+ *
+ * Nothing in this application creates or settles PENDING rows, so between
+ * passes the totals only move through recordPending/recordSettled. Until every
+ * such writer reports here the totals can lag by up to reconcile-ms, so they
+ * are off by default and balance checks keep summing in SQL.
+ */
+@Component
+public class PendingTransactionTotals {
+
+    private static final Logger log = LoggerFactory.getLogger(PendingTransactionTotals.class);
+
+    private static final double DRIFT_TOLERANCE = 0.005;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${bank.transactions.pending.maintained-totals:false}")
+    private boolean enabled;
+
+    private final ConcurrentHashMap<String, DoubleAdder> totals = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+
+    private final LongAdder reconciliations = new LongAdder();
+    private final LongAdder correctedAccounts = new LongAdder();
+    private volatile int lastDriftCount;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public double get(String accountId) {
+        DoubleAdder total = totals.get(accountId);
+        return total != null ? total.sum() : 0.0;
+    }
+
+    public void recordPending(String accountId, double amount) {
+        adder(accountId).add(amount);
+    }
+
+    public void recordSettled(String accountId, double amount) {
+        adder(accountId).add(-amount);
+    }
+
+    /**
+     * Seeds the totals on startup and then periodically brings them back in line
+     * with the database. A write racing with the read can cause a spurious
+     * correction, which the next pass undoes.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${bank.transactions.pending.reconcile-ms:60000}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        Map<String, Double> expected;
+        try {
+            expected = loadFromDatabase();
+        } catch (RuntimeException e) {
+            log.warn("Pending total reconciliation failed", e);
+            return;
+        }
+
+        Set<String> accountIds = new HashSet<>(expected.keySet());
+        accountIds.addAll(totals.keySet());
+
+        int drifted = 0;
+        for (String accountId : accountIds) {
+            double diff = expected.getOrDefault(accountId, 0.0) - get(accountId);
+            if (Math.abs(diff) > DRIFT_TOLERANCE) {
+                adder(accountId).add(diff);
+                drifted++;
+            }
+        }
+
+        reconciliations.increment();
+        correctedAccounts.add(drifted);
+        lastDriftCount = drifted;
+        if (ready && drifted > 0) {
+            log.warn("Corrected pending totals for {} accounts", drifted);
+        }
+        ready = true;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ready", ready);
+        stats.put("accounts", totals.size());
+        stats.put("reconciliations", reconciliations.sum());
+        stats.put("correctedAccounts", correctedAccounts.sum());
+        stats.put("lastDriftCount", lastDriftCount);
+        return stats;
+    }
+
+    private DoubleAdder adder(String accountId) {
+        return totals.computeIfAbsent(accountId, id -> new DoubleAdder());
+    }
+
+    private Map<String, Double> loadFromDatabase() {
+        String query = "SELECT account_id, SUM(amount) as total FROM transactions " +
+                      "WHERE status = 'PENDING' GROUP BY account_id";
+        Map<String, Double> expected = new HashMap<>();
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                String accountId = rs.getString("account_id");
+                if (accountId != null) {
+                    expected.put(accountId, rs.getDouble("total"));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Pending total query failed", e);
+        }
+
+        return expected;
+    }
+}
@@ -0,0 +1,143 @@
+package com.bank.repository;
+
+import com.bank.cache.BoundedCache;
+import com.bank.dto.TransactionRecord;
+import com.bank.event.AccountChangeEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded per-account buffer of recent transaction history
+ * An account's newest rows within the configured window are loaded once on
+ * first read, so history requests starting inside that window are answered
+ * from memory and only older ranges reach SQL. The insert path does not record
+ * which account a row belongs to, so instead of appending, a balance change
+ * evicts the affected accounts and their next read loads them again.
+ */
+@Component
+public class RecentTransactionBuffer {
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Value("${bank.transactions.recent.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bank.transactions.recent.capacity:256}")
+    private int capacity;
+
+    @Value("${bank.transactions.recent.window-days:7}")
+    private int windowDays;
+
+    @Value("${bank.transactions.recent.max-accounts:10000}")
+    private int maxAccounts;
+
+    @Value("${bank.transactions.recent.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private BoundedCache<String, RecentHistory> histories;
+
+    @PostConstruct
+    void initBuffer() {
+        histories = new BoundedCache<>("recentTransactions", maxAccounts, Duration.ofSeconds(ttlSeconds),
+            history -> Collections.singletonList(history.accountId));
+    }
+
+    /**
+     * Rows dated at or after startDate, newest first, or null when the
+     * range reaches past what the buffer covers and SQL has to answer it
+     */
+    public List<TransactionRecord> find(String accountId, String startDate) {
+        if (!enabled) {
+            return null;
+        }
+        long startMillis = parseStart(startDate);
+        if (startMillis == Long.MIN_VALUE || startMillis < windowStart()) {
+            return null;
+        }
+
+        RecentHistory history = histories.getOrLoad(accountId, this::load);
+        if (startMillis < history.coveredSince) {
+            return null;
+        }
+        List<TransactionRecord> results = new ArrayList<>();
+        for (TransactionRecord record : history.rows) {
+            if (record.dateMillis() < startMillis) {
+                break;
+            }
+            results.add(record);
+        }
+        return results;
+    }
+
+    @EventListener
+    public void onAccountChange(AccountChangeEvent event) {
+        for (String accountId : event.getAccountIds()) {
+            histories.invalidateTag(accountId);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        return histories.stats();
+    }
+
+    private RecentHistory load(String accountId) {
+        long since = windowStart();
+        List<TransactionRecord> rows =
+            transactionRepository.findRecentTransactions(accountId, new Timestamp(since), capacity + 1);
+        if (rows.size() <= capacity) {
+            return new RecentHistory(accountId, rows, since);
+        }
+        // Window holds more than fits - cover only what is strictly newer than the oldest kept row
+        List<TransactionRecord> kept = rows.subList(0, capacity);
+        long oldestKept = kept.get(capacity - 1).dateMillis();
+        return new RecentHistory(accountId, new ArrayList<>(kept), oldestKept + 1);
+    }
+
+    private long windowStart() {
+        return System.currentTimeMillis() - Duration.ofDays(windowDays).toMillis();
+    }
+
+    // Accepts the formats the SQL path receives: a timestamp or a plain date
+    private static long parseStart(String startDate) {
+        if (startDate == null) {
+            return Long.MIN_VALUE;
+        }
+        try {
+            return Timestamp.valueOf(startDate.trim()).getTime();
+        } catch (IllegalArgumentException e) {
+            // not a timestamp, try a date
+        }
+        try {
+            return LocalDate.parse(startDate.trim()).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static final class RecentHistory {
+        final String accountId;
+        // Newest first, every row of the account dated at or after coveredSince
+        final List<TransactionRecord> rows;
+        final long coveredSince;
+
+        RecentHistory(String accountId, List<TransactionRecord> rows, long coveredSince) {
+            this.accountId = accountId;
+            this.rows = rows;
+            this.coveredSince = coveredSince;
+        }
+    }
+}
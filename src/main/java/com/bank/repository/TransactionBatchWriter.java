@@ -0,0 +1,261 @@
+package com.bank.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Group-commit pipeline for transaction inserts
+ * Concurrent inserts are collected for a short bounded window (or until the
+ * batch is full), written with one JDBC batch in a single database transaction,
+ * and every caller's future completes when that transaction commits.
+ * When the batch fails its rows are written again one by one, so a single bad
+ * row fails only its own caller.
+ */
+@Component
+public class TransactionBatchWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionBatchWriter.class);
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${bank.transactions.group-commit.enabled:false}")
+    private boolean enabled;
+
+    @Value("${bank.transactions.group-commit.max-batch:256}")
+    private int maxBatch;
+
+    @Value("${bank.transactions.group-commit.max-wait-micros:2000}")
+    private long maxWaitMicros;
+
+    @Value("${bank.transactions.group-commit.queue-capacity:10000}")
+    private int queueCapacity;
+
+    private BlockingQueue<PendingInsert> queue;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder failedRows = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator largestBatch = new LongAccumulator(Math::max, 0);
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writerThread = new Thread(this::runWriter, "transaction-group-commit");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (writerThread == null) {
+            return;
+        }
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        failQueued();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues one insert; blocks while the queue is full so producers feel backpressure
+     */
+    public CompletableFuture<Void> submit(String transactionId, String fromAccountId, String toAccountId,
+                                          double amount, Timestamp occurredAt) {
+        PendingInsert insert = new PendingInsert(transactionId, fromAccountId, toAccountId, amount, occurredAt);
+        if (!running) {
+            insert.result.completeExceptionally(new IllegalStateException("Transaction writer is not running"));
+            return insert.result;
+        }
+        try {
+            queue.put(insert);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            insert.result.completeExceptionally(e);
+            return insert.result;
+        }
+        // Stopped while this was being queued - the writer may already be gone, so fail it unless it was taken
+        if (!running && queue.remove(insert)) {
+            insert.result.completeExceptionally(new IllegalStateException("Transaction writer is not running"));
+        }
+        return insert.result;
+    }
+
+    public Map<String, Object> stats() {
+        long batchCount = batches.sum();
+        long rowCount = rows.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("queued", queue != null ? queue.size() : 0);
+        stats.put("batches", batchCount);
+        stats.put("rows", rowCount);
+        stats.put("failedBatches", failedBatches.sum());
+        stats.put("failedRows", failedRows.sum());
+        stats.put("averageBatchSize", batchCount == 0 ? 0.0 : (double) rowCount / batchCount);
+        stats.put("largestBatch", largestBatch.get());
+        stats.put("averageWaitMicros", rowCount == 0 ? 0.0 : waitNanos.sum() / 1000.0 / rowCount);
+        return stats;
+    }
+
+    private void runWriter() {
+        List<PendingInsert> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingInsert first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // The window is measured from the oldest insert, bounding what any caller waits
+                long deadline = first.enqueuedAt + TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+                while (batch.size() < maxBatch) {
+                    queue.drainTo(batch, maxBatch - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatch || remaining <= 0) {
+                        break;
+                    }
+                    PendingInsert next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failAll(batch, e);
+                failQueued();
+                return;
+            } catch (RuntimeException e) {
+                // Keep the writer alive; only this batch's callers see the failure
+                failedBatches.increment();
+                log.warn("Group commit of {} transactions failed", batch.size(), e);
+                failAll(batch, e);
+            } finally {
+                batch.clear();
+            }
+        }
+        failQueued();
+    }
+
+    private void failQueued() {
+        List<PendingInsert> left = new ArrayList<>();
+        queue.drainTo(left);
+        failAll(left, new IllegalStateException("Transaction writer is not running"));
+    }
+
+    private void writeBatch(List<PendingInsert> batch) {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(TransactionRepository.RECORD_TRANSFER_SQL)) {
+                for (PendingInsert insert : batch) {
+                    TransactionRepository.bindTransfer(stmt, insert.transactionId, insert.fromAccountId,
+                        insert.toAccountId, insert.amount, insert.occurredAt);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            failedBatches.increment();
+            log.warn("Group commit of {} transactions failed, writing them one by one", batch.size(), e);
+            writeIndividually(batch);
+            return;
+        }
+
+        long committedAt = System.nanoTime();
+        batches.increment();
+        rows.add(batch.size());
+        largestBatch.accumulate(batch.size());
+        for (PendingInsert insert : batch) {
+            waitNanos.add(committedAt - insert.enqueuedAt);
+            insert.result.complete(null);
+        }
+    }
+
+    /**
+     * Each row in its own transaction, so only the rows that fail on their own see an error
+     */
+    private void writeIndividually(List<PendingInsert> batch) {
+        for (PendingInsert insert : batch) {
+            try (Connection conn = dataSource.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(TransactionRepository.RECORD_TRANSFER_SQL)) {
+                TransactionRepository.bindTransfer(stmt, insert.transactionId, insert.fromAccountId,
+                    insert.toAccountId, insert.amount, insert.occurredAt);
+                stmt.executeUpdate();
+            } catch (SQLException e) {
+                failedRows.increment();
+                insert.result.completeExceptionally(new RuntimeException("Transaction creation failed", e));
+                continue;
+            }
+            rows.add(1);
+            waitNanos.add(System.nanoTime() - insert.enqueuedAt);
+            insert.result.complete(null);
+        }
+    }
+
+    private static void failAll(List<PendingInsert> batch, Throwable cause) {
+        for (PendingInsert insert : batch) {
+            insert.result.completeExceptionally(cause);
+        }
+    }
+
+    private static final class PendingInsert {
+        final String transactionId;
+        final String fromAccountId;
+        final String toAccountId;
+        final double amount;
+        final Timestamp occurredAt;
+        final long enqueuedAt = System.nanoTime();
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        PendingInsert(String transactionId, String fromAccountId, String toAccountId,
+                      double amount, Timestamp occurredAt) {
+            this.transactionId = transactionId;
+            this.fromAccountId = fromAccountId;
+            this.toAccountId = toAccountId;
+            this.amount = amount;
+            this.occurredAt = occurredAt;
+        }
+    }
+}
@@ -1,13 +1,20 @@
 package com.bank.repository;
 
+import com.bank.dto.TransactionRecord;
+import com.bank.event.AccountChangeEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Repository;
 import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Transaction repository with safe implementations
@@ -15,14 +22,42 @@ import java.util.Map;
 @Repository
 public class TransactionRepository {
 
+    private static final Logger log = LoggerFactory.getLogger(TransactionRepository.class);
+
+    // Inserts the transfer row and applies it to both balances in one statement. A transaction id
+    // that is already recorded inserts nothing and leaves the balances alone, so a replay is harmless
+    static final String RECORD_TRANSFER_SQL =
+        "WITH inserted AS (" +
+        "INSERT INTO transactions (transaction_id, from_account, to_account, amount, transaction_date) " +
+        "VALUES (?, ?, ?, ?, ?) ON CONFLICT (transaction_id) DO NOTHING " +
+        "RETURNING from_account, to_account, amount) " +
+        "UPDATE accounts SET balance = balance " +
+        "- CASE WHEN account_id = inserted.from_account THEN inserted.amount ELSE 0 END " +
+        "+ CASE WHEN account_id = inserted.to_account THEN inserted.amount ELSE 0 END " +
+        "FROM inserted WHERE account_id IN (inserted.from_account, inserted.to_account)";
+
+    // Column order of the transaction row mapping plan
+    private static final String[] TRANSACTION_COLUMNS = {
+        "transaction_id", "amount", "transaction_date", "transaction_type"
+    };
+
     @Autowired
     private DataSource dataSource;
 
+    @Autowired
+    private TransactionBatchWriter batchWriter;
+
+    @Autowired
+    private PendingTransactionTotals pendingTotals;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
      * SAFE METHOD: Uses parameterized queries
      */
-    public List<Map<String, Object>> findTransactionsSafely(String accountId, String startDate) {
-        List<Map<String, Object>> results = new ArrayList<>();
+    public List<TransactionRecord> findTransactionsSafely(String accountId, String startDate) {
+        List<TransactionRecord> results = new ArrayList<>();
         
         String query = "SELECT * FROM transactions WHERE account_id = ? AND transaction_date >= ? ORDER BY transaction_date DESC";
         
@@ -34,13 +69,13 @@ public class TransactionRepository {
             
             ResultSet rs = stmt.executeQuery();
             
+            ColumnPlan plan = ColumnPlan.forResultSet(rs, TRANSACTION_COLUMNS);
             while (rs.next()) {
-                Map<String, Object> transaction = new HashMap<>();
-                transaction.put("transactionId", rs.getString("transaction_id"));
-                transaction.put("amount", rs.getDouble("amount"));
-                transaction.put("date", rs.getTimestamp("transaction_date"));
-                transaction.put("type", rs.getString("transaction_type"));
-                results.add(transaction);
+                results.add(new TransactionRecord(
+                    plan.getString(rs, 0),
+                    plan.getDouble(rs, 1),
+                    millis(plan.getTimestamp(rs, 2)),
+                    plan.getString(rs, 3)));
             }
         } catch (SQLException e) {
             throw new RuntimeException("Transaction query failed", e);
@@ -49,16 +84,117 @@ public class TransactionRepository {
         return results;
     }
 
-    public void createTransaction(String fromAccountId, String toAccountId, double amount) {
-        String query = "INSERT INTO transactions (from_account, to_account, amount, transaction_date) VALUES (?, ?, ?, NOW())";
+    /**
+     * Newest transactions of an account since the given instant, at most limit rows
+     */
+    public List<TransactionRecord> findRecentTransactions(String accountId, Timestamp since, int limit) {
+        List<TransactionRecord> results = new ArrayList<>();
+        
+        String query = "SELECT transaction_id, amount, transaction_date, transaction_type FROM transactions " +
+                      "WHERE account_id = ? AND transaction_date >= ? ORDER BY transaction_date DESC LIMIT ?";
         
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             
-            stmt.setString(1, fromAccountId);
-            stmt.setString(2, toAccountId);
-            stmt.setDouble(3, amount);
+            stmt.setString(1, accountId);
+            stmt.setTimestamp(2, since);
+            stmt.setInt(3, limit);
+            
+            ResultSet rs = stmt.executeQuery();
+            
+            ColumnPlan plan = ColumnPlan.forResultSet(rs, TRANSACTION_COLUMNS);
+            while (rs.next()) {
+                results.add(new TransactionRecord(
+                    plan.getString(rs, 0),
+                    plan.getDouble(rs, 1),
+                    millis(plan.getTimestamp(rs, 2)),
+                    plan.getString(rs, 3)));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Transaction query failed", e);
+        }
+        
+        return results;
+    }
+
+    private static long millis(Timestamp timestamp) {
+        return timestamp != null ? timestamp.getTime() : TransactionRecord.NO_DATE;
+    }
+
+    /**
+     * Records a transfer and moves the amount between the two balances in the
+     * same database transaction; recording the same transaction id again is a no-op
+     */
+    public void createTransaction(String transactionId, String fromAccountId, String toAccountId,
+                                  double amount, Timestamp occurredAt) {
+        if (batchWriter.isEnabled()) {
+            // Group commit - returns once the batch holding this insert has committed
+            try {
+                batchWriter.submit(transactionId, fromAccountId, toAccountId, amount, occurredAt).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeException("Transaction creation failed", e.getCause());
+            }
+        } else {
+            insertTransaction(transactionId, fromAccountId, toAccountId, amount, occurredAt);
+        }
+        
+        publishBalanceChanged(fromAccountId, toAccountId);
+    }
+
+    /**
+     * Non-blocking variant of createTransaction
+     * With group commit enabled the future completes when the batch commits. It
+     * fails only when the insert did; change listeners run outside of it.
+     */
+    public CompletableFuture<Void> createTransactionAsync(String transactionId, String fromAccountId,
+                                                          String toAccountId, double amount, Timestamp occurredAt) {
+        if (!batchWriter.isEnabled()) {
+            try {
+                insertTransaction(transactionId, fromAccountId, toAccountId, amount, occurredAt);
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            publishBalanceChanged(fromAccountId, toAccountId);
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> insert = batchWriter.submit(transactionId, fromAccountId, toAccountId, amount, occurredAt);
+        insert.thenRun(() -> publishBalanceChanged(fromAccountId, toAccountId));
+        return insert;
+    }
+
+    static void bindTransfer(PreparedStatement stmt, String transactionId, String fromAccountId,
+                             String toAccountId, double amount, Timestamp occurredAt) throws SQLException {
+        stmt.setString(1, transactionId);
+        stmt.setString(2, fromAccountId);
+        stmt.setString(3, toAccountId);
+        stmt.setDouble(4, amount);
+        stmt.setTimestamp(5, occurredAt);
+    }
+
+    // The transfer is committed; a failing cache listener must not make it look like it was not
+    private void publishBalanceChanged(String fromAccountId, String toAccountId) {
+        try {
+            eventPublisher.publishEvent(AccountChangeEvent.balanceChanged(fromAccountId, toAccountId));
+        } catch (RuntimeException e) {
+            log.warn("Balance change listener failed for {} -> {}", fromAccountId, toAccountId, e);
+        }
+    }
+
+    public Map<String, Object> getWriterStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(batchWriter.stats());
+        stats.put("pendingTotals", pendingTotals.stats());
+        return stats;
+    }
+
+    private void insertTransaction(String transactionId, String fromAccountId, String toAccountId,
+                                   double amount, Timestamp occurredAt) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(RECORD_TRANSFER_SQL)) {
             
+            bindTransfer(stmt, transactionId, fromAccountId, toAccountId, amount, occurredAt);
             stmt.executeUpdate();
         } catch (SQLException e) {
             throw new RuntimeException("Transaction creation failed", e);
@@ -66,6 +202,11 @@ public class TransactionRepository {
     }
 
     public double sumPendingTransactions(String accountId) {
+        // Served from the maintained totals when they are enabled and seeded
+        if (pendingTotals.isReady()) {
+            return pendingTotals.get(accountId);
+        }
+        
         String query = "SELECT SUM(amount) as total FROM transactions WHERE account_id = ? AND status = 'PENDING'";
         
         try (Connection conn = dataSource.getConnection();
@@ -1,15 +1,50 @@
 package com.bank.service;
 
+import com.bank.dto.TransactionRecord;
+import com.bank.dto.AuditLogEntry;
+import com.bank.dto.AuditLogPage;
+import com.bank.dto.AuditLogQuery;
+import com.bank.cache.RequestMemo;
+import com.bank.repository.AccountNameIndex;
 import com.bank.repository.AccountRepository;
+import com.bank.repository.AuditArchive;
+import com.bank.repository.BalanceSummaryStore;
+import com.bank.repository.RecentTransactionBuffer;
 import com.bank.repository.TransactionRepository;
 import com.bank.dto.AccountResponse;
+import com.bank.dto.AccountSearchPage;
+import com.bank.dto.BalanceSummary;
+import com.bank.dto.TransferRequest;
 import com.bank.util.NotificationHelper;
 import com.bank.util.DatabaseHelper;
+import com.bank.util.IdGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 /**
  * Core account service with business logic
@@ -18,28 +53,215 @@ import java.util.Map;
 @Service
 public class AccountService {
 
+    // Search term the report layer sends for an unfiltered aggregation
+    private static final String MATCH_ALL = "%";
+
     @Autowired
     private AccountRepository accountRepository;
 
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private AccountNameIndex accountNameIndex;
+
+    @Autowired
+    private RecentTransactionBuffer recentTransactions;
+
+    @Autowired
+    private AuditArchive auditArchive;
+
+    @Autowired
+    private BalanceSummaryStore balanceSummaries;
+
+    @Autowired
+    private RequestMemo requestMemo;
+
+    @Autowired
+    private TransferEngine transferEngine;
+
+    @Autowired
+    private TransferRecorder transferRecorder;
+
     @Autowired
     private NotificationHelper notificationHelper;
 
     @Autowired
     private DatabaseHelper databaseHelper;
 
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Value("${bank.search.max-page-size:200}")
+    private int maxPageSize;
+
+    @Value("${bank.audit.query.max-page-size:500}")
+    private int maxAuditPageSize;
+
+    // Range used when an audit query does not give a start
+    @Value("${bank.audit.query.default-days:90}")
+    private int defaultAuditDays;
+
+    // Caps how many bulk-search terms hit the database at once; keep it at or below the pool size
+    @Value("${bank.search.bulk-concurrency:8}")
+    private int bulkSearchConcurrency;
+
+    private ExecutorService bulkSearchExecutor;
+
+    @PostConstruct
+    void startBulkSearchExecutor() {
+        bulkSearchExecutor = Executors.newFixedThreadPool(Math.max(1, bulkSearchConcurrency));
+    }
+
+    @PreDestroy
+    void stopBulkSearchExecutor() {
+        bulkSearchExecutor.shutdownNow();
+    }
+
     /**
      * SINK METHOD 1: SQL Injection sink
      * Multiple attack paths converge here
      */
     public List<AccountResponse> searchAccountsByName(String name, String accountType) {
-        // Calls repository which has the vulnerable cursor.execute()
         String enrichedName = enrichSearchTerm(name);
+        
+        // Plain substrings are answered from the trigram index, only hydration hits the database
+        if (accountNameIndex.isReady() && AccountNameIndex.isPlainTerm(enrichedName)) {
+            return accountRepository.findAllByIds(accountNameIndex.search(enrichedName, accountType));
+        }
+        
+        // Calls repository which has the vulnerable cursor.execute()
         return accountRepository.searchByNameUnsafe(enrichedName, accountType);
     }
 
+    /**
+     * Runs searchAccountsByName for many terms at once, keyed by the given names
+     * Terms that normalize to the same value run once; index-answerable terms share
+     * one hydration query and the rest run concurrently under bulk-concurrency
+     */
+    public Map<String, List<AccountResponse>> searchAccountsByNames(Collection<String> names, String accountType) {
+        Map<String, List<String>> namesByTerm = new LinkedHashMap<>();
+        for (String name : names) {
+            namesByTerm.computeIfAbsent(enrichSearchTerm(name), k -> new ArrayList<>()).add(name);
+        }
+        
+        Map<String, List<String>> idsByTerm = new HashMap<>();
+        Map<String, CompletableFuture<List<AccountResponse>>> pending = new HashMap<>();
+        for (String term : namesByTerm.keySet()) {
+            if (accountNameIndex.isReady() && AccountNameIndex.isPlainTerm(term)) {
+                idsByTerm.put(term, accountNameIndex.search(term, accountType));
+            } else {
+                pending.put(term, CompletableFuture.supplyAsync(
+                    () -> searchAccountsByName(term, accountType), bulkSearchExecutor));
+            }
+        }
+        
+        Map<String, List<AccountResponse>> byTerm = new HashMap<>(hydrateByTerm(idsByTerm));
+        try {
+            for (Map.Entry<String, CompletableFuture<List<AccountResponse>>> entry : pending.entrySet()) {
+                byTerm.put(entry.getKey(), entry.getValue().join());
+            }
+        } catch (CompletionException e) {
+            pending.values().forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        
+        Map<String, List<AccountResponse>> results = new HashMap<>();
+        namesByTerm.forEach((term, termNames) -> termNames.forEach(name -> results.put(name, byTerm.get(term))));
+        return results;
+    }
+
+    /**
+     * Hydrates the union of all index hits in one pass and splits the rows back per term
+     */
+    private Map<String, List<AccountResponse>> hydrateByTerm(Map<String, List<String>> idsByTerm) {
+        if (idsByTerm.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Set<String> allIds = new LinkedHashSet<>();
+        idsByTerm.values().forEach(allIds::addAll);
+        
+        Map<String, AccountResponse> byId = new HashMap<>();
+        for (AccountResponse account : accountRepository.findAllByIds(new ArrayList<>(allIds))) {
+            byId.put(account.getAccountId(), account);
+        }
+        
+        Map<String, List<AccountResponse>> byTerm = new HashMap<>();
+        idsByTerm.forEach((term, ids) -> {
+            List<AccountResponse> accounts = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                AccountResponse account = byId.get(id);
+                if (account != null) {
+                    accounts.add(account);
+                }
+            }
+            byTerm.put(term, accounts);
+        });
+        return byTerm;
+    }
+
+    /**
+     * Keyset-paginated variant of searchAccountsByName
+     * Pages are ordered by account_id, the cursor is an opaque continuation token
+     */
+    public AccountSearchPage searchAccountsPage(String name, String accountType,
+                                                String cursor, int pageSize) {
+        String enrichedName = enrichSearchTerm(name);
+        String afterAccountId = decodeCursor(cursor);
+        int limit = Math.max(1, Math.min(pageSize, maxPageSize));
+        
+        if (accountNameIndex.isReady() && AccountNameIndex.isPlainTerm(enrichedName)) {
+            List<String> ids = new ArrayList<>(accountNameIndex.search(enrichedName, accountType));
+            Collections.sort(ids);
+            int from = afterAccountId == null ? 0 : upperBound(ids, afterAccountId);
+            List<String> pageIds = ids.subList(from, Math.min(from + limit, ids.size()));
+            List<AccountResponse> accounts = accountRepository.findAllByIds(pageIds);
+            // Decided on the ids, an account deleted since indexing must not end the listing early
+            boolean hasMore = ids.size() > from + limit;
+            return new AccountSearchPage(accounts, hasMore ? encodeCursor(pageIds.get(limit - 1)) : null);
+        }
+        
+        // Fetch one extra row to learn whether another page exists
+        List<AccountResponse> accounts =
+            accountRepository.searchByNamePage(enrichedName, accountType, afterAccountId, limit + 1);
+        if (accounts.size() <= limit) {
+            return new AccountSearchPage(accounts, null);
+        }
+        List<AccountResponse> page = new ArrayList<>(accounts.subList(0, limit));
+        return new AccountSearchPage(page, encodeCursor(page.get(limit - 1).getAccountId()));
+    }
+
+    /**
+     * Streaming variant of searchAccountsByName, rows are handed over as the cursor advances
+     */
+    public void streamAccountsByName(String name, String accountType, Consumer<AccountResponse> consumer) {
+        accountRepository.streamByName(enrichSearchTerm(name), accountType, consumer);
+    }
+
+    private static int upperBound(List<String> sortedIds, String afterAccountId) {
+        int pos = Collections.binarySearch(sortedIds, afterAccountId);
+        return pos >= 0 ? pos + 1 : -pos - 1;
+    }
+
+    private static String encodeCursor(String accountId) {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(accountId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
     private String enrichSearchTerm(String term) {
         // Just passes through - no sanitization
         if (term != null && term.length() > 0) {
@@ -49,38 +271,190 @@ public class AccountService {
     }
 
     public AccountResponse findUserAccount(String userId) {
-        return accountRepository.findByUserId(userId);
+        // Same query as findPrimaryAccount - share its memo entry and cache
+        return memoizedPrimaryAccount(userId);
     }
 
     /**
      * SAFE METHOD: Uses parameterized query
      */
-    public List<Map<String, Object>> getTransactionHistorySafe(String accountId, String startDate) {
-        // This uses safe parameterized queries
+    public List<TransactionRecord> getTransactionHistorySafe(String accountId, String startDate) {
+        // Recent ranges come from the in-memory buffer, older ones use safe parameterized queries
+        List<TransactionRecord> recent = recentTransactions.find(accountId, startDate);
+        if (recent != null) {
+            return recent;
+        }
         return transactionRepository.findTransactionsSafely(accountId, startDate);
     }
 
     /**
      * SINK METHOD 2: Admin audit logs with SQL injection
      * But protected by authorization at controller level
+     * One page of the user's entries in the requested range, newest first
+     */
+    public AuditLogPage queryAuditLogsDirectly(String userId, String action, AuditLogQuery query) {
+        String formattedAction = formatActionType(action);
+        long now = System.currentTimeMillis();
+        long to = parseAuditInstant(query.getTo(), now);
+        long from = parseAuditInstant(query.getFrom(), to - Duration.ofDays(defaultAuditDays).toMillis());
+        long[] after = decodeAuditCursor(query.getCursor());
+        int limit = Math.max(1, Math.min(query.getSize(), maxAuditPageSize));
+        
+        // Fetch one extra row to learn whether another page exists
+        List<AuditLogEntry> entries = accountRepository.executeAuditQuery(userId, formattedAction,
+            new Timestamp(from), new Timestamp(to),
+            after != null ? AuditLogEntry.toSqlTimestamp(after[0], (int) after[1]) : null,
+            after != null ? after[2] : 0L, limit + 1);
+        entries = withArchived(entries, userId, formattedAction, from, to, after, limit + 1);
+        
+        if (entries.size() <= limit) {
+            return new AuditLogPage(entries, null);
+        }
+        List<AuditLogEntry> page = new ArrayList<>(entries.subList(0, limit));
+        AuditLogEntry last = page.get(limit - 1);
+        // The database keeps sub-millisecond precision, so the cursor has to as well
+        return new AuditLogPage(page, encodeCursor(
+            last.timestampMillis() + ":" + last.subMillisNanos() + ":" + last.getId()));
+    }
+
+    /**
+     * Hands every audit entry of the user in the range to the consumer, oldest first
+     * Archived entries come first; all of them predate the rows left in the table,
+     * so table rows at or before the newest archived one are copies and skipped.
+     * Without a start the export covers the whole history.
      */
-    public List<Map<String, Object>> queryAuditLogsDirectly(String userId, String action) {
+    public void exportAuditLogs(String userId, String action, String from, String to,
+                                Consumer<AuditLogEntry> consumer) {
         String formattedAction = formatActionType(action);
-        return accountRepository.executeAuditQuery(userId, formattedAction);
+        long toMillis = parseAuditInstant(to, System.currentTimeMillis());
+        long fromMillis = parseAuditInstant(from, 0L);
+        
+        if (!auditArchive.isEnabled()) {
+            accountRepository.streamAuditLogs(userId, formattedAction, new Timestamp(fromMillis),
+                new Timestamp(toMillis), consumer);
+            return;
+        }
+        // A roll between the two reads would move rows out of the table after the archive was read
+        auditArchive.withoutRolling(() -> {
+            AuditLogEntry newestArchived = auditArchive.stream(userId, formattedAction, fromMillis, toMillis, consumer);
+            accountRepository.streamAuditLogs(userId, formattedAction, new Timestamp(fromMillis),
+                new Timestamp(toMillis), entry -> {
+                    if (newestArchived == null || AuditArchive.NEWEST_FIRST.compare(entry, newestArchived) < 0) {
+                        consumer.accept(entry);
+                    }
+                });
+        });
+    }
+
+    /**
+     * Merges in archived entries when the archive can hold any that would make the page
+     */
+    private List<AuditLogEntry> withArchived(List<AuditLogEntry> hot, String userId, String action,
+                                             long from, long to, long[] after, int limit) {
+        if (!auditArchive.isEnabled()) {
+            return hot;
+        }
+        long newestArchived = auditArchive.newestArchivedMillis();
+        if (newestArchived < from || (hot.size() >= limit && hot.get(limit - 1).timestampMillis() > newestArchived)) {
+            return hot;
+        }
+        
+        List<AuditLogEntry> archived = auditArchive.search(userId, action, from, to, after, limit);
+        Map<Long, AuditLogEntry> byId = new LinkedHashMap<>();
+        // An interrupted archive pass can leave a row in both tiers
+        for (AuditLogEntry entry : hot) {
+            byId.put(entry.getId(), entry);
+        }
+        for (AuditLogEntry entry : archived) {
+            byId.putIfAbsent(entry.getId(), entry);
+        }
+        List<AuditLogEntry> merged = new ArrayList<>(byId.values());
+        merged.sort(AuditArchive.NEWEST_FIRST);
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
     }
 
     private String formatActionType(String action) {
         // Just formatting, no sanitization
-        return action != null ? action.toUpperCase() : "ALL";
+        return action != null ? action.toUpperCase() : AccountRepository.ALL_ACTIONS;
+    }
+
+    /**
+     * Decodes "millis:subMillisNanos:id" into that triple; a two-part cursor
+     * from before the nanos were added reads as whole milliseconds
+     */
+    private static long[] decodeAuditCursor(String cursor) {
+        String decoded = decodeCursor(cursor);
+        if (decoded == null) {
+            return null;
+        }
+        String[] parts = decoded.split(":", -1);
+        try {
+            long[] after = parts.length == 2
+                ? new long[] {Long.parseLong(parts[0]), 0L, Long.parseLong(parts[1])}
+                : new long[] {Long.parseLong(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2])};
+            if (parts.length > 3 || after[1] < 0 || after[1] >= 1_000_000) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return after;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    // Epoch millis, an ISO instant, a timestamp or a plain date
+    private static long parseAuditInstant(String value, long defaultMillis) {
+        if (value == null || value.isEmpty()) {
+            return defaultMillis;
+        }
+        String trimmed = value.trim();
+        try {
+            if (trimmed.chars().allMatch(Character::isDigit)) {
+                return Long.parseLong(trimmed);
+            }
+            if (trimmed.endsWith("Z")) {
+                return Instant.parse(trimmed).toEpochMilli();
+            }
+            if (trimmed.length() > 10) {
+                return Timestamp.valueOf(trimmed.replace('T', ' ')).getTime();
+            }
+            return LocalDate.parse(trimmed).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid time: " + value, e);
+        }
     }
 
     public AccountResponse getAccountById(String accountId) {
-        return accountRepository.findById(accountId);
+        return memoizedAccountById(accountId);
+    }
+
+    /**
+     * Batch variant of getAccountById - one round trip for all cache misses
+     */
+    public Map<String, AccountResponse> getAccountsByIds(Collection<String> accountIds) {
+        return accountRepository.findByIds(accountIds);
+    }
+
+    /**
+     * Batch variant of findAccountByNumber, keyed by the numbers as given
+     */
+    public Map<String, AccountResponse> findAccountsByNumbers(Collection<String> accountNumbers) {
+        Map<String, List<String>> givenByNormalized = new HashMap<>();
+        for (String accountNumber : accountNumbers) {
+            givenByNormalized.computeIfAbsent(normalizeAccountNumber(accountNumber), k -> new ArrayList<>())
+                .add(accountNumber);
+        }
+        
+        Map<String, AccountResponse> byNormalized = accountRepository.findByAccountNumbers(givenByNormalized.keySet());
+        Map<String, AccountResponse> results = new HashMap<>();
+        byNormalized.forEach((normalized, account) ->
+            givenByNormalized.get(normalized).forEach(given -> results.put(given, account)));
+        return results;
     }
 
     public AccountResponse findAccountByNumber(String accountNumber) {
         String normalized = normalizeAccountNumber(accountNumber);
-        return accountRepository.findByAccountNumber(normalized);
+        return requestMemo.memoize("accountByNumber",
+            () -> accountRepository.findByAccountNumber(normalized), normalized);
     }
 
     private String normalizeAccountNumber(String accountNumber) {
@@ -89,14 +463,52 @@ public class AccountService {
     }
 
     public boolean checkSufficientBalance(String accountId, double amount) {
-        AccountResponse account = accountRepository.findById(accountId);
+        AccountResponse account = memoizedAccountById(accountId);
         return account.getBalance() >= amount;
     }
 
+    /**
+     * Transfer to an account number; with the transfer engine enabled the balance
+     * check and debit run on the source account's partition instead of racing here
+     */
+    public String transferFunds(TransferRequest request) {
+        // NaN fails the comparison too
+        if (!(request.getAmount() > 0) || Double.isInfinite(request.getAmount())) {
+            throw new IllegalArgumentException("Transfer amount must be a positive number");
+        }
+        AccountResponse from = getAccountById(request.getFromAccountId());
+        AccountResponse to = findAccountByNumber(request.getToAccountNumber());
+        if (from == null || to == null) {
+            throw new RuntimeException("Account not found");
+        }
+
+        String transactionId;
+        if (transferEngine.isEnabled()) {
+            transactionId = idGenerator.nextId("TXN-");
+            boolean accepted;
+            try {
+                accepted = transferEngine.transfer(transactionId, from.getAccountId(), to.getAccountId(),
+                    request.getAmount()).join();
+            } catch (CompletionException e) {
+                throw new RuntimeException("Transfer failed", e.getCause());
+            }
+            if (!accepted) {
+                throw new RuntimeException("Insufficient balance");
+            }
+        } else {
+            if (!checkSufficientBalance(from.getAccountId(), request.getAmount())) {
+                throw new RuntimeException("Insufficient balance");
+            }
+            transactionId = executeTransfer(from, to, request.getAmount());
+        }
+        return transactionId;
+    }
+
     public String executeTransfer(AccountResponse from, AccountResponse to, double amount) {
         // Execute the actual transfer
-        transactionRepository.createTransaction(from.getAccountId(), to.getAccountId(), amount);
-        return "TXN-" + System.currentTimeMillis();
+        String transactionId = idGenerator.nextId("TXN-");
+        transferRecorder.record(transactionId, from.getAccountId(), to.getAccountId(), amount);
+        return transactionId;
     }
 
     /**
@@ -115,7 +527,7 @@ public class AccountService {
     }
 
     public AccountResponse getAccountDetailsForBalance(String accountId) {
-        return accountRepository.findById(accountId);
+        return memoizedAccountById(accountId);
     }
 
     public double calculateCurrentBalance(AccountResponse account) {
@@ -125,6 +537,17 @@ public class AccountService {
         return balance - pending;
     }
 
+    /**
+     * Balance summaries per group for accounts matching the name, computed in SQL
+     * Unfiltered requests are answered from the materialized summaries once seeded
+     */
+    public Map<String, BalanceSummary> aggregateBalancesByName(String name, String groupBy) {
+        if (MATCH_ALL.equals(name) && balanceSummaries.isReady()) {
+            return balanceSummaries.summaries(groupBy);
+        }
+        return accountRepository.aggregateBalancesByName(enrichSearchTerm(name), groupBy);
+    }
+
     /**
      * DEAD CODE: Legacy unsafe search
      */
@@ -133,8 +556,41 @@ public class AccountService {
         return accountRepository.legacyDirectQuery(name);
     }
 
+    public Map<String, Object> getLookupCacheStats() {
+        return accountRepository.getLookupCacheStats();
+    }
+
+    public Map<String, Object> getAuditArchiveStats() {
+        return auditArchive.stats();
+    }
+
+    public Map<String, Object> getRecentTransactionStats() {
+        return recentTransactions.stats();
+    }
+
+    public Map<String, Object> getBalanceSummaryStats() {
+        return balanceSummaries.stats();
+    }
+
+    public Map<String, Object> getTransactionWriterStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(transactionRepository.getWriterStats());
+        stats.put("transferEngine", transferEngine.stats());
+        stats.put("ledger", transferRecorder.ledgerStats());
+        return stats;
+    }
+
     public String getPrimaryAccountId(String userId) {
-        AccountResponse account = accountRepository.findPrimaryAccount(userId);
+        AccountResponse account = memoizedPrimaryAccount(userId);
         return account != null ? account.getAccountId() : null;
     }
+
+    // Idempotent reads repeated across layers within one request run once
+
+    private AccountResponse memoizedAccountById(String accountId) {
+        return requestMemo.memoize("accountById", () -> accountRepository.findById(accountId), accountId);
+    }
+
+    private AccountResponse memoizedPrimaryAccount(String userId) {
+        return requestMemo.memoize("primaryAccount", () -> accountRepository.findPrimaryAccount(userId), userId);
+    }
 }
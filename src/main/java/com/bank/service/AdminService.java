@@ -1,5 +1,7 @@
 package com.bank.service;
 
+import com.bank.dto.AuditLogPage;
+import com.bank.dto.AuditLogQuery;
 import com.bank.repository.AccountRepository;
 import com.bank.dto.AccountResponse;
 import com.bank.util.SearchHelper;
@@ -40,40 +42,39 @@ public class AdminService {
      * Called by: AdminController.viewAuditLogs
      * Calls: AuditMiddleware.filterAndQuery
      */
-    public List<Map<String, Object>> retrieveAuditLogs(String userId, String action) {
+    public AuditLogPage retrieveAuditLogs(String userId, String action, AuditLogQuery query) {
         // Validate admin access (simplified)
         if (userId == null || userId.isEmpty()) {
             throw new IllegalArgumentException("User ID required");
         }
         
         // Flows through audit middleware to service to sink
-        return accountService.queryAuditLogsDirectly(userId, action);
+        return accountService.queryAuditLogsDirectly(userId, action, query);
     }
 
     /**
      * Part of ATTACK PATH 2C
      * Called by: AdminController.bulkAccountSearch
-     * Calls: AccountService.searchAccountsByName (multiple times)
+     * Calls: AccountService.searchAccountsByNames (concurrent, deduplicated)
      */
     public Map<String, List<AccountResponse>> searchMultipleAccounts(
             Map<String, String> searchCriteria) {
         
-        Map<String, List<AccountResponse>> results = new HashMap<>();
+        Map<String, String> enrichedByKey = new HashMap<>();
         
-        // Each search query flows to the same sink
+        // Process through helper
         for (Map.Entry<String, String> entry : searchCriteria.entrySet()) {
-            String key = entry.getKey();
-            String value = entry.getValue();
-            
-            // Process through helper
-            String enrichedValue = searchHelper.enrichSearchTerm(value);
-            
-            // Each call creates a path to the sink
-            List<AccountResponse> accounts = accountService.searchAccountsByName(
-                enrichedValue, null);
-            results.put(key, accounts);
+            enrichedByKey.put(entry.getKey(), searchHelper.enrichSearchTerm(entry.getValue()));
         }
         
+        // Duplicate terms are collapsed and the rest run concurrently,
+        // each distinct query still flows to the same sink
+        Map<String, List<AccountResponse>> byTerm = accountService.searchAccountsByNames(
+            enrichedByKey.values(), null);
+        
+        Map<String, List<AccountResponse>> results = new HashMap<>();
+        enrichedByKey.forEach((key, term) -> results.put(key, byTerm.get(term)));
+        
         return results;
     }
 }
@@ -1,5 +1,6 @@
 package com.bank.service;
 
+import com.bank.cache.RequestMemo;
 import com.bank.util.JwtHelper;
 import com.bank.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,9 +20,12 @@ public class AuthService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private RequestMemo requestMemo;
+
     public String extractUserId(HttpServletRequest request) {
         String token = extractToken(request);
-        return jwtHelper.getUserIdFromToken(token);
+        return requestMemo.memoize("userIdFromToken", () -> jwtHelper.getUserIdFromToken(token), token);
     }
 
     public String extractToken(HttpServletRequest request) {
@@ -58,11 +62,12 @@ public class AuthService {
     }
 
     public boolean verifyAccountOwnership(String userId, String accountId) {
-        return userRepository.checkAccountOwnership(userId, accountId);
+        return requestMemo.memoize("accountOwnership",
+            () -> userRepository.checkAccountOwnership(userId, accountId), userId, accountId);
     }
 
     public boolean validateUserSession(String userId) {
-        return userRepository.isSessionValid(userId);
+        return requestMemo.memoize("sessionValid", () -> userRepository.isSessionValid(userId), userId);
     }
 
     public boolean quickAuthCheck(String userId) {
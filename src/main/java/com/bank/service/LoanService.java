@@ -1,11 +1,13 @@
 package com.bank.service;
 
+import com.bank.dto.LoanRecord;
+import com.bank.cache.RequestMemo;
 import com.bank.repository.LoanRepository;
 import com.bank.repository.CreditRepository;
+import com.bank.util.IdGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.Map;
 
 /**
  * Loan service for complex attack paths
@@ -19,8 +21,14 @@ public class LoanService {
     @Autowired
     private CreditRepository creditRepository;
 
+    @Autowired
+    private RequestMemo requestMemo;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
     public int getCreditScore(String userId) {
-        return creditRepository.fetchCreditScore(userId);
+        return requestMemo.memoize("creditScore", () -> creditRepository.fetchCreditScore(userId), userId);
     }
 
     public boolean checkLoanEligibility(String userId, double amount, int creditScore) {
@@ -41,13 +49,13 @@ public class LoanService {
     public String createLoanApplication(String userId, double amount, 
                                        String employerName, double income) {
         // Vulnerable: employerName goes to unsafe query
-        String loanId = generateLoanId(userId, amount);
+        String loanId = generateLoanId();
         loanRepository.insertLoanApplicationUnsafe(loanId, userId, amount, employerName, income);
         return loanId;
     }
 
-    private String generateLoanId(String userId, double amount) {
-        return "LOAN-" + userId + "-" + System.currentTimeMillis();
+    private String generateLoanId() {
+        return idGenerator.nextId("LOAN-");
     }
 
     public String validateLoanId(String loanId) {
@@ -61,7 +69,7 @@ public class LoanService {
     /**
      * SAFE METHOD: Uses parameterized query
      */
-    public Map<String, Object> getLoanDetailsSafely(String loanId) {
+    public LoanRecord getLoanDetailsSafely(String loanId) {
         // This one is safe
         return loanRepository.findLoanByIdSafe(loanId);
     }
@@ -1,12 +1,13 @@
 package com.bank.service;
 
+import com.bank.dto.AuditLogPage;
+import com.bank.dto.AuditLogQuery;
 import com.bank.dto.AccountResponse;
 import com.bank.util.MobileHelper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.Map;
 
 /**
  * Mobile Service - Intermediary in attack paths from MobileApiController
@@ -26,14 +27,21 @@ public class MobileService {
      * Calls: helper → AccountService.searchAccountsByName
      */
     public List<AccountResponse> searchAccountsForMobile(String query, String accountType) {
+        String optimizedQuery = normalizeMobileQuery(query);
+        
+        // Flows to AccountService which flows to the sink
+        return accountService.searchAccountsByName(optimizedQuery, accountType);
+    }
+
+    /**
+     * Canonical form of a mobile search query, shared by the search and its cache keys
+     */
+    public String normalizeMobileQuery(String query) {
         // Format for mobile display
         String mobileFormattedQuery = mobileHelper.formatForMobile(query);
         
         // Another layer before reaching AccountService
-        String optimizedQuery = mobileHelper.optimizeSearchQuery(mobileFormattedQuery);
-        
-        // Flows to AccountService which flows to the sink
-        return accountService.searchAccountsByName(optimizedQuery, accountType);
+        return mobileHelper.optimizeSearchQuery(mobileFormattedQuery);
     }
 
     /**
@@ -51,7 +59,7 @@ public class MobileService {
      * Called by: MobileApiController.getMobileAuditTrail
      * Calls: helper → AccountService.queryAuditLogsDirectly
      */
-    public List<Map<String, Object>> fetchUserAuditTrail(String userId, String sessionToken) {
+    public AuditLogPage fetchUserAuditTrail(String userId, String sessionToken, AuditLogQuery query) {
         // Verify session
         boolean isValid = mobileHelper.verifySession(sessionToken);
         
@@ -63,6 +71,6 @@ public class MobileService {
         String formattedUserId = mobileHelper.formatUserId(userId);
         
         // Flows to AccountService which flows to audit sink
-        return accountService.queryAuditLogsDirectly(formattedUserId, "MOBILE_ACCESS");
+        return accountService.queryAuditLogsDirectly(formattedUserId, "MOBILE_ACCESS", query);
     }
 }
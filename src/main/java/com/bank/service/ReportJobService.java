@@ -0,0 +1,548 @@
+package com.bank.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous report jobs
+ * Submitting a report only queues it and returns a job id; a fixed pool of
+ * workers runs the queued jobs. Each tenant has its own FIFO queue and the
+ * workers take one job per tenant in turn, so a tenant with a long backlog
+ * delays the others by at most one job per worker. Results are serialized to
+ * JSON in memory and spill to a file under the spill directory once they pass
+ * the threshold, or once the results held in memory reach their total cap;
+ * finished jobs and their files are purged after the retention.
+ */
+@Component
+public class ReportJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportJobService.class);
+
+    public enum Status { QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${bank.reports.jobs.workers:4}")
+    private int workerCount;
+
+    @Value("${bank.reports.jobs.max-queued:1000}")
+    private int maxQueued;
+
+    @Value("${bank.reports.jobs.max-queued-per-tenant:50}")
+    private int maxQueuedPerTenant;
+
+    @Value("${bank.reports.jobs.spill-threshold-bytes:1048576}")
+    private int spillThresholdBytes;
+
+    @Value("${bank.reports.jobs.max-inline-bytes:67108864}")
+    private long maxInlineBytes;
+
+    @Value("${bank.reports.jobs.spill-dir:${java.io.tmpdir}/bank-report-jobs}")
+    private String spillDir;
+
+    @Value("${bank.reports.jobs.retention-minutes:60}")
+    private long retentionMinutes;
+
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+
+    // Bytes of all results currently kept in memory
+    private final AtomicLong inlineBytes = new AtomicLong();
+
+    // Queued jobs per tenant and the round-robin order of tenants with queued jobs, guarded by queueLock
+    private final Map<String, ArrayDeque<ReportJob>> tenantQueues = new HashMap<>();
+    private final ArrayDeque<String> readyTenants = new ArrayDeque<>();
+    private int queuedCount;
+    private final ReentrantLock queueLock = new ReentrantLock();
+    private final Condition jobAvailable = queueLock.newCondition();
+
+    private Path spillPath;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder purged = new LongAdder();
+
+    @PostConstruct
+    void start() throws IOException {
+        spillPath = Files.createDirectories(Paths.get(spillDir));
+        // Jobs do not survive a restart, so neither do their files
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(spillPath, "*.json")) {
+            for (Path leftover : leftovers) {
+                Files.deleteIfExists(leftover);
+            }
+        }
+
+        running = true;
+        int count = workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < count; i++) {
+            Thread worker = new Thread(this::runWorker, "report-job-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    /**
+     * Queues a report for the tenant and returns its job id
+     */
+    public String submit(String tenant, String reportType, Supplier<?> report) {
+        // Random rather than sequential, so one job id says nothing about the next
+        ReportJob job = new ReportJob("RPT-" + UUID.randomUUID(), tenant, reportType, report);
+
+        queueLock.lock();
+        try {
+            ArrayDeque<ReportJob> queue = tenantQueues.computeIfAbsent(tenant, t -> new ArrayDeque<>());
+            if (queuedCount >= maxQueued || queue.size() >= maxQueuedPerTenant) {
+                if (queue.isEmpty()) {
+                    tenantQueues.remove(tenant);
+                }
+                rejected.increment();
+                throw new RuntimeException("Too many queued reports, try again later");
+            }
+            if (queue.isEmpty()) {
+                readyTenants.addLast(tenant);
+            }
+            queue.addLast(job);
+            queuedCount++;
+            jobs.put(job.id, job);
+            jobAvailable.signal();
+        } finally {
+            queueLock.unlock();
+        }
+        submitted.increment();
+        return job.id;
+    }
+
+    /**
+     * Status of the tenant's job
+     */
+    public Map<String, Object> status(String tenant, String jobId) {
+        return find(tenant, jobId).describe();
+    }
+
+    /**
+     * Cancels the tenant's job; a running report is abandoned and its result discarded
+     */
+    public Map<String, Object> cancel(String tenant, String jobId) {
+        ReportJob job = find(tenant, jobId);
+        boolean dequeued = false;
+        synchronized (job) {
+            if (job.status == Status.QUEUED || job.status == Status.RUNNING) {
+                dequeued = job.status == Status.QUEUED;
+                job.finish(Status.CANCELLED, null);
+                cancelled.increment();
+                if (job.runner != null) {
+                    job.runner.interrupt();
+                }
+            }
+        }
+        if (dequeued) {
+            unqueue(job);
+        }
+        return job.describe();
+    }
+
+    /**
+     * Fails unless the tenant's job has a result to fetch
+     */
+    public void requireResult(String tenant, String jobId) {
+        ReportJob job = find(tenant, jobId);
+        if (job.status != Status.SUCCEEDED) {
+            throw new IllegalStateException("Report job " + jobId + " is " + job.status);
+        }
+    }
+
+    /**
+     * Copies the finished result of the tenant's job as JSON
+     */
+    public void writeResult(String tenant, String jobId, OutputStream out) throws IOException {
+        ReportJob job = find(tenant, jobId);
+        byte[] inline;
+        InputStream file = null;
+        synchronized (job) {
+            if (job.status != Status.SUCCEEDED || (job.inlineResult == null && job.resultFile == null)) {
+                throw new IllegalStateException("Report job " + jobId + " is no longer available");
+            }
+            inline = job.inlineResult;
+            if (inline == null) {
+                // Opened under the job's monitor, so a purge can only delete the file out from under an open stream
+                file = Files.newInputStream(job.resultFile);
+            }
+        }
+        if (inline != null) {
+            out.write(inline);
+            return;
+        }
+        try (InputStream in = file) {
+            in.transferTo(out);
+        }
+    }
+
+    /**
+     * Drops finished jobs older than the retention together with their spill files
+     */
+    @Scheduled(fixedDelayString = "${bank.reports.jobs.purge-ms:60000}")
+    public void purgeExpired() {
+        long cutoff = System.currentTimeMillis() - Duration.ofMinutes(retentionMinutes).toMillis();
+        for (ReportJob job : jobs.values()) {
+            synchronized (job) {
+                if (job.finishedAt == 0 || job.finishedAt >= cutoff || job.runner != null) {
+                    continue;
+                }
+                deleteResult(job);
+            }
+            jobs.remove(job.id);
+            purged.increment();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        int queued;
+        queueLock.lock();
+        try {
+            queued = queuedCount;
+        } finally {
+            queueLock.unlock();
+        }
+        long runningJobs = jobs.values().stream().filter(job -> job.status == Status.RUNNING).count();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("workers", workers.size());
+        stats.put("queued", queued);
+        stats.put("running", runningJobs);
+        stats.put("retained", jobs.size());
+        stats.put("submitted", submitted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("succeeded", succeeded.sum());
+        stats.put("failed", failed.sum());
+        stats.put("cancelled", cancelled.sum());
+        stats.put("spilled", spilled.sum());
+        stats.put("inlineBytes", inlineBytes.get());
+        stats.put("purged", purged.sum());
+        return stats;
+    }
+
+    private ReportJob find(String tenant, String jobId) {
+        ReportJob job = jobs.get(jobId);
+        // Another tenant's job reads as missing rather than forbidden
+        if (job == null || !job.tenant.equals(tenant)) {
+            throw new RuntimeException("Report job not found");
+        }
+        return job;
+    }
+
+    private void unqueue(ReportJob job) {
+        queueLock.lock();
+        try {
+            ArrayDeque<ReportJob> queue = tenantQueues.get(job.tenant);
+            if (queue != null && queue.remove(job)) {
+                queuedCount--;
+                if (queue.isEmpty()) {
+                    tenantQueues.remove(job.tenant);
+                    readyTenants.remove(job.tenant);
+                }
+            }
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    // Next job in tenant round-robin order, blocking while nothing is queued
+    private ReportJob take() throws InterruptedException {
+        queueLock.lockInterruptibly();
+        try {
+            while (readyTenants.isEmpty()) {
+                jobAvailable.await();
+            }
+            String tenant = readyTenants.pollFirst();
+            ArrayDeque<ReportJob> queue = tenantQueues.get(tenant);
+            ReportJob job = queue.pollFirst();
+            queuedCount--;
+            if (queue.isEmpty()) {
+                tenantQueues.remove(tenant);
+            } else {
+                readyTenants.addLast(tenant);
+            }
+            return job;
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    private void runWorker() {
+        while (running) {
+            ReportJob job;
+            try {
+                job = take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            synchronized (job) {
+                if (job.status != Status.QUEUED) {
+                    continue;
+                }
+                job.status = Status.RUNNING;
+                job.startedAt = System.currentTimeMillis();
+                job.runner = Thread.currentThread();
+            }
+            run(job);
+            // Clears an interrupt left by a cancel so it cannot hit the next job
+            Thread.interrupted();
+        }
+    }
+
+    private void run(ReportJob job) {
+        ResultBuffer buffer = new ResultBuffer(job.id);
+        boolean reserved = false;
+        try {
+            // Closes the buffer once the value is written
+            objectMapper.writeValue(buffer, job.report.get());
+            if (buffer.file == null) {
+                reserved = reserveInline(buffer.size);
+                if (!reserved) {
+                    buffer.spill();
+                }
+            }
+            synchronized (job) {
+                if (job.status == Status.CANCELLED) {
+                    buffer.discard();
+                    if (reserved) {
+                        inlineBytes.addAndGet(-buffer.size);
+                    }
+                    return;
+                }
+                job.inlineResult = buffer.inline();
+                job.resultFile = buffer.file;
+                job.resultBytes = buffer.size;
+                job.finish(Status.SUCCEEDED, null);
+                succeeded.increment();
+            }
+            if (buffer.file != null) {
+                spilled.increment();
+            }
+        } catch (Throwable e) {
+            // Errors too: an OutOfMemoryError on a large report must fail the job, not the worker
+            buffer.discard();
+            if (reserved) {
+                inlineBytes.addAndGet(-buffer.size);
+            }
+            synchronized (job) {
+                if (job.status == Status.CANCELLED) {
+                    return;
+                }
+                job.finish(Status.FAILED, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                failed.increment();
+            }
+            log.warn("Report job {} failed", job.id, e);
+        } finally {
+            synchronized (job) {
+                job.runner = null;
+            }
+        }
+    }
+
+    // Claims room for a result in memory, false when it would pass the total cap
+    private boolean reserveInline(long size) {
+        while (true) {
+            long current = inlineBytes.get();
+            if (current + size > maxInlineBytes) {
+                return false;
+            }
+            if (inlineBytes.compareAndSet(current, current + size)) {
+                return true;
+            }
+        }
+    }
+
+    private void deleteResult(ReportJob job) {
+        if (job.inlineResult != null) {
+            inlineBytes.addAndGet(-job.inlineResult.length);
+        }
+        job.inlineResult = null;
+        if (job.resultFile != null) {
+            try {
+                Files.deleteIfExists(job.resultFile);
+            } catch (IOException e) {
+                log.warn("Could not delete report result {}", job.resultFile, e);
+            }
+            job.resultFile = null;
+        }
+    }
+
+    private static final class ReportJob {
+        final String id;
+        final String tenant;
+        final String reportType;
+        final Supplier<?> report;
+        final long submittedAt = System.currentTimeMillis();
+
+        // Guarded by the job's monitor
+        volatile Status status = Status.QUEUED;
+        long startedAt;
+        long finishedAt;
+        String error;
+        Thread runner;
+        byte[] inlineResult;
+        Path resultFile;
+        long resultBytes;
+
+        ReportJob(String id, String tenant, String reportType, Supplier<?> report) {
+            this.id = id;
+            this.tenant = tenant;
+            this.reportType = reportType;
+            this.report = report;
+        }
+
+        void finish(Status finalStatus, String failure) {
+            status = finalStatus;
+            error = failure;
+            finishedAt = System.currentTimeMillis();
+        }
+
+        synchronized Map<String, Object> describe() {
+            Map<String, Object> description = new LinkedHashMap<>();
+            description.put("jobId", id);
+            description.put("reportType", reportType);
+            description.put("status", status);
+            description.put("submittedAt", submittedAt);
+            if (startedAt > 0) {
+                description.put("startedAt", startedAt);
+            }
+            if (finishedAt > 0) {
+                description.put("finishedAt", finishedAt);
+            }
+            if (status == Status.SUCCEEDED) {
+                description.put("resultBytes", resultBytes);
+            }
+            if (error != null) {
+                description.put("error", error);
+            }
+            return description;
+        }
+    }
+
+    /**
+     * Collects a result in memory and moves it to a file once it passes the spill threshold
+     */
+    private final class ResultBuffer extends OutputStream {
+        private final String jobId;
+        private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        private OutputStream fileOut;
+        private boolean closed;
+        Path file;
+        long size;
+
+        ResultBuffer(String jobId) {
+            this.jobId = jobId;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IOException("Report job cancelled");
+            }
+            if (fileOut == null && memory.size() + length > spillThresholdBytes) {
+                openFile();
+            }
+            if (fileOut != null) {
+                fileOut.write(bytes, offset, length);
+            } else {
+                memory.write(bytes, offset, length);
+            }
+            size += length;
+        }
+
+        /**
+         * Moves a result that stayed in memory to its file
+         */
+        void spill() throws IOException {
+            if (fileOut == null) {
+                openFile();
+            }
+            close();
+        }
+
+        private void openFile() throws IOException {
+            file = spillPath.resolve(jobId + ".json");
+            fileOut = Files.newOutputStream(file);
+            memory.writeTo(fileOut);
+            memory = null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fileOut != null && !closed) {
+                closed = true;
+                fileOut.close();
+            }
+        }
+
+        byte[] inline() {
+            return fileOut == null ? memory.toByteArray() : null;
+        }
+
+        void discard() {
+            memory = null;
+            if (file != null) {
+                try {
+                    close();
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("Could not delete report result {}", file, e);
+                }
+            }
+        }
+    }
+}
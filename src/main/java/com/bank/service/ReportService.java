@@ -1,6 +1,10 @@
 package com.bank.service;
 
+import com.bank.dto.AuditLogEntry;
+import com.bank.dto.AuditLogPage;
+import com.bank.dto.AuditLogQuery;
 import com.bank.dto.AccountResponse;
+import com.bank.dto.BalanceSummary;
 import com.bank.util.ReportHelper;
 import com.bank.util.AggregationHelper;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,6 +13,7 @@ import org.springframework.stereotype.Service;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.function.Consumer;
 
 /**
  * Report Service - Intermediary in attack paths from ReportController
@@ -54,13 +59,25 @@ public class ReportService {
      * Called by: ReportController.complianceReport
      * Calls: helper → AccountService.queryAuditLogsDirectly
      */
-    public List<Map<String, Object>> generateComplianceReport(String userId, String actionType) {
+    public AuditLogPage generateComplianceReport(String userId, String actionType, AuditLogQuery query) {
         // Format for compliance reporting
         String complianceUserId = reportHelper.formatComplianceId(userId);
         String complianceAction = reportHelper.normalizeActionType(actionType);
         
         // Query audit logs - flows to sink
-        return accountService.queryAuditLogsDirectly(complianceUserId, complianceAction);
+        return accountService.queryAuditLogsDirectly(complianceUserId, complianceAction, query);
+    }
+
+    /**
+     * Streaming form of generateComplianceReport covering the whole range,
+     * entries go to the consumer oldest first as they are read
+     */
+    public void exportComplianceReport(String userId, String actionType, String from, String to,
+                                       Consumer<AuditLogEntry> consumer) {
+        String complianceUserId = reportHelper.formatComplianceId(userId);
+        String complianceAction = reportHelper.normalizeActionType(actionType);
+        
+        accountService.exportAuditLogs(complianceUserId, complianceAction, from, to, consumer);
     }
 
     /**
@@ -68,19 +85,29 @@ public class ReportService {
      * Called by: ReportController.aggregateAccountData
      * Calls: multiple helpers → AccountService.searchAccountsByName
      */
-    public Map<String, Object> aggregateAccounts(String searchTerm, String groupBy) {
+    public Map<String, Object> aggregateAccounts(String searchTerm, String groupBy, boolean summaryOnly) {
         // Pre-process search term
         String processedTerm = aggregationHelper.preprocessTerm(searchTerm);
         
         // Enhance with aggregation context
         String enhancedTerm = aggregationHelper.enhanceWithContext(processedTerm);
         
+        // Summaries alone are computed by the database, no rows are transferred
+        if (summaryOnly) {
+            Map<String, BalanceSummary> summary = accountService.aggregateBalancesByName(enhancedTerm, groupBy);
+            Map<String, Object> aggregated = new HashMap<>();
+            aggregated.put("summary", summary);
+            aggregated.put("total", summary.values().stream().mapToLong(BalanceSummary::getCount).sum());
+            return aggregated;
+        }
+        
         // Search accounts - flows to sink
         List<AccountResponse> accounts = accountService.searchAccountsByName(
             enhancedTerm, null);
         
         // Group results
         Map<String, Object> aggregated = aggregationHelper.groupResults(accounts, groupBy);
+        aggregated.put("summary", aggregationHelper.summarizeBalances(accounts, groupBy));
         
         return aggregated;
     }
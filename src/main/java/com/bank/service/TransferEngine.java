@@ -0,0 +1,294 @@
+package com.bank.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Single-writer partitioned transfer engine
+ * Accounts are spread over N partitions by account-id hash and each partition
+ * owns the working balances of its accounts on one thread, so the balance check
+ * and the debit run without locks and cannot interleave with another transfer
+ * from the same account. A transfer runs on the source partition, which then
+ * hands the credit to the destination partition; because partitions process
+ * their queues in order, transfers between any two accounts apply in submission
+ * order. Persistence is asynchronous and a failed insert is compensated; run
+ * it with group commit or the ledger journal enabled, otherwise the insert
+ * blocks the partition thread.
+ *
+ * Each recorded transfer updates accounts.balance in the same database
+ * transaction, and working balances are seeded from that stored balance less
+ * pending amounts and undrained journal records. A working balance is re-seeded
+ * after balance-ttl-ms once none of its transfers are in flight, so transfers
+ * recorded elsewhere show up within that bound. Between re-seeds they are not
+ * seen, so enable the engine on one node only.
+ */
+@Component
+public class TransferEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferEngine.class);
+
+    @Autowired
+    private TransferRecorder transferRecorder;
+
+    @Value("${bank.transfers.engine.enabled:false}")
+    private boolean enabled;
+
+    @Value("${bank.transfers.engine.partitions:0}")
+    private int partitionCount;
+
+    @Value("${bank.transfers.engine.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${bank.transfers.engine.balance-ttl-ms:5000}")
+    private long balanceTtlMillis;
+
+    private long balanceTtlNanos;
+
+    private Partition[] partitions;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder persistFailures = new LongAdder();
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        balanceTtlNanos = TimeUnit.MILLISECONDS.toNanos(balanceTtlMillis);
+        int count = partitionCount > 0 ? partitionCount : Runtime.getRuntime().availableProcessors();
+        partitions = new Partition[count];
+        for (int i = 0; i < count; i++) {
+            partitions[i] = new Partition(i, queueCapacity);
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (partitions == null) {
+            return;
+        }
+        for (Partition partition : partitions) {
+            partition.executor.shutdown();
+        }
+        for (Partition partition : partitions) {
+            partition.executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Debits the source on its partition and completes with false when the
+     * working balance does not cover the amount. The destination is then
+     * credited on its partition and only after that is the transfer recorded,
+     * so a destination seeded by the credit reads state without this transfer.
+     * Completes with true once the transfer is recorded.
+     */
+    public CompletableFuture<Boolean> transfer(String transactionId, String fromAccountId,
+                                               String toAccountId, double amount) {
+        if (!(amount > 0) || Double.isInfinite(amount)) {
+            throw new IllegalArgumentException("Transfer amount must be a positive number");
+        }
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        Partition source = partitionFor(fromAccountId);
+        Partition destination = partitionFor(toAccountId);
+        submit(source, () -> {
+            if (!source.debit(fromAccountId, amount)) {
+                rejected.increment();
+                result.complete(false);
+                return;
+            }
+            accepted.increment();
+            submit(destination, () -> {
+                destination.credit(toAccountId, amount);
+                record(transactionId, fromAccountId, toAccountId, amount, result);
+            }, error -> {
+                // Nothing was recorded, give the debit back
+                submit(source, () -> source.settle(fromAccountId, amount), null);
+                result.completeExceptionally(error);
+            });
+        }, result::completeExceptionally);
+        return result;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("accepted", accepted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("persistFailures", persistFailures.sum());
+        if (partitions != null) {
+            List<Integer> queued = new ArrayList<>(partitions.length);
+            for (Partition partition : partitions) {
+                queued.add(partition.executor.getQueue().size());
+            }
+            stats.put("partitions", partitions.length);
+            stats.put("queued", queued);
+        }
+        return stats;
+    }
+
+    /**
+     * Acknowledged once recorded: journaled when the ledger is on, committed otherwise. The
+     * future fails only when the record itself failed, so the reversal never undoes a stored transfer
+     */
+    private void record(String transactionId, String fromAccountId, String toAccountId, double amount,
+                        CompletableFuture<Boolean> result) {
+        CompletableFuture<Void> recorded;
+        try {
+            recorded = transferRecorder.recordAsync(transactionId, fromAccountId, toAccountId, amount);
+        } catch (RuntimeException e) {
+            // Both sides are already applied, so this has to go through the reversal below
+            recorded = CompletableFuture.failedFuture(e);
+        }
+        recorded.whenComplete((ignored, error) -> {
+            if (error != null) {
+                persistFailures.increment();
+                log.warn("Persisting transfer {} -> {} failed, reverting working balances",
+                    fromAccountId, toAccountId, error);
+            }
+            double reversal = error != null ? amount : 0;
+            Partition destination = partitionFor(toAccountId);
+            Partition source = partitionFor(fromAccountId);
+            submit(destination, () -> destination.settle(toAccountId, -reversal), null);
+            submit(source, () -> source.settle(fromAccountId, reversal), null);
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(true);
+            }
+        });
+    }
+
+    /**
+     * Runs the task on the partition; a failure or a full queue goes to onFailure, or is logged without one
+     */
+    private void submit(Partition partition, Runnable task, Consumer<RuntimeException> onFailure) {
+        try {
+            partition.executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    if (onFailure != null) {
+                        onFailure.accept(e);
+                    } else {
+                        log.warn("Transfer step failed on partition {}", partition.index, e);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (onFailure != null) {
+                onFailure.accept(new IllegalStateException("Transfer engine is overloaded", e));
+            } else {
+                log.warn("Dropped transfer step on partition {}", partition.index, e);
+            }
+        }
+    }
+
+    private Partition partitionFor(String accountId) {
+        if (partitions == null) {
+            throw new IllegalStateException("Transfer engine is not enabled");
+        }
+        return partitions[Math.floorMod(accountId.hashCode(), partitions.length)];
+    }
+
+    private final class Partition {
+        final int index;
+        final ThreadPoolExecutor executor;
+
+        // Only touched from this partition's thread
+        private final Map<String, WorkingBalance> balances = new HashMap<>();
+
+        Partition(int index, int capacity) {
+            this.index = index;
+            this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity), runnable -> {
+                    Thread thread = new Thread(runnable, "transfer-partition-" + index);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        }
+
+        boolean debit(String accountId, double amount) {
+            WorkingBalance balance = balance(accountId);
+            if (balance.amount < amount) {
+                return false;
+            }
+            balance.amount -= amount;
+            balance.inFlight++;
+            return true;
+        }
+
+        void credit(String accountId, double amount) {
+            WorkingBalance balance = balance(accountId);
+            balance.amount += amount;
+            balance.inFlight++;
+        }
+
+        /**
+         * Ends an in-flight debit or credit once its record completed, applying the reversal if it failed
+         */
+        void settle(String accountId, double adjustment) {
+            WorkingBalance balance = balances.get(accountId);
+            if (balance != null) {
+                balance.amount += adjustment;
+                balance.inFlight--;
+            }
+        }
+
+        // Seeded from the persisted balance the first time the partition sees the account, so transfers
+        // recorded before a restart stay spent. Re-seeded once older than the TTL while nothing is in
+        // flight, which picks up transfers recorded outside the engine
+        private WorkingBalance balance(String accountId) {
+            long now = System.nanoTime();
+            WorkingBalance balance = balances.get(accountId);
+            if (balance != null && balance.inFlight == 0 && now - balance.seededAt > balanceTtlNanos) {
+                balance = null;
+            }
+            if (balance == null) {
+                OptionalDouble spendable = transferRecorder.spendableBalance(accountId);
+                if (!spendable.isPresent()) {
+                    balances.remove(accountId);
+                    throw new IllegalArgumentException("Unknown account " + accountId);
+                }
+                balance = new WorkingBalance(spendable.getAsDouble(), now);
+                balances.put(accountId, balance);
+            }
+            return balance;
+        }
+    }
+
+    private static final class WorkingBalance {
+        double amount;
+        // Debits and credits applied here whose record has not completed yet
+        int inFlight;
+        final long seededAt;
+
+        WorkingBalance(double amount, long seededAt) {
+            this.amount = amount;
+            this.seededAt = seededAt;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.bank.service;
+
+import com.bank.dto.AccountResponse;
+import com.bank.repository.AccountRepository;
+import com.bank.repository.LedgerJournal;
+import com.bank.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Decides where an accepted transfer is recorded
+ * With the ledger journal enabled a transfer is durable once journaled and
+ * reaches the transactions table when the journal drains; otherwise it is
+ * inserted directly.
+ */
+@Component
+public class TransferRecorder {
+
+    @Autowired
+    private LedgerJournal ledgerJournal;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    public void record(String transactionId, String fromAccountId, String toAccountId, double amount) {
+        if (ledgerJournal.isEnabled()) {
+            ledgerJournal.append(transactionId, fromAccountId, toAccountId, amount, now());
+        } else {
+            transactionRepository.createTransaction(transactionId, fromAccountId, toAccountId, amount, now());
+        }
+    }
+
+    public CompletableFuture<Void> recordAsync(String transactionId, String fromAccountId,
+                                               String toAccountId, double amount) {
+        if (!ledgerJournal.isEnabled()) {
+            return transactionRepository.createTransactionAsync(transactionId, fromAccountId, toAccountId,
+                amount, now());
+        }
+        try {
+            ledgerJournal.append(transactionId, fromAccountId, toAccountId, amount, now());
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * What an account can spend: its stored balance less pending amounts,
+     * adjusted by recorded transfers the journal has not drained yet.
+     * Empty when the account does not exist.
+     */
+    public OptionalDouble spendableBalance(String accountId) {
+        double pending = transactionRepository.sumPendingTransactions(accountId);
+        if (!ledgerJournal.isEnabled()) {
+            return storedBalance(accountId, pending);
+        }
+        return ledgerJournal.projectBalance(accountId, () -> storedBalance(accountId, pending));
+    }
+
+    public Map<String, Object> ledgerStats() {
+        return ledgerJournal.stats();
+    }
+
+    private OptionalDouble storedBalance(String accountId, double pending) {
+        AccountResponse account = accountRepository.findById(accountId);
+        return account != null ? OptionalDouble.of(account.getBalance() - pending) : OptionalDouble.empty();
+    }
+
+    private static Timestamp now() {
+        return new Timestamp(System.currentTimeMillis());
+    }
+}
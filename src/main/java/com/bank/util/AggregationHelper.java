@@ -1,12 +1,17 @@
 package com.bank.util;
 
 import com.bank.dto.AccountResponse;
+import com.bank.dto.BalanceSummary;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.function.Function;
+import java.util.stream.Collector;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Aggregation Helper - Utility in reporting attack paths
@@ -14,6 +19,9 @@ import java.util.stream.Collectors;
 @Component
 public class AggregationHelper {
 
+    // Below this many rows splitting the work costs more than it saves
+    private static final int PARALLEL_THRESHOLD = 10_000;
+
     /**
      * Part of ATTACK PATH 4C
      * Pre-processes term (doesn't sanitize)
@@ -55,11 +63,11 @@ public class AggregationHelper {
             return aggregated;
         }
         
-        // Group by account type
-        if ("type".equalsIgnoreCase(groupBy)) {
+        // Group by account type or currency
+        Function<AccountResponse, String> groupKey = groupKey(groupBy);
+        if (groupKey != null) {
             Map<String, List<AccountResponse>> grouped = accounts.stream()
-                .collect(Collectors.groupingBy(account -> 
-                    account.getAccountType() != null ? account.getAccountType() : "unknown"));
+                .collect(Collectors.groupingBy(groupKey));
             aggregated.putAll(grouped);
         } else {
             aggregated.put("all", accounts);
@@ -68,4 +76,67 @@ public class AggregationHelper {
         aggregated.put("total", accounts.size());
         return aggregated;
     }
+
+    /**
+     * Balance summary per group over rows already in memory
+     * Each worker folds rows into primitive accumulators and the partial maps are
+     * merged at the end, so no per-group row lists are built
+     */
+    public Map<String, BalanceSummary> summarizeBalances(List<AccountResponse> accounts, String groupBy) {
+        Function<AccountResponse, String> groupKey = groupKey(groupBy);
+        Function<AccountResponse, String> key = groupKey != null ? groupKey : account -> "all";
+        Stream<AccountResponse> rows = accounts.size() >= PARALLEL_THRESHOLD
+            ? accounts.parallelStream()
+            : accounts.stream();
+
+        Map<String, BalanceAccumulator> accumulators = rows.collect(Collector.of(
+            HashMap<String, BalanceAccumulator>::new,
+            (map, account) -> map.computeIfAbsent(key.apply(account), k -> new BalanceAccumulator())
+                .add(account.getBalance()),
+            (left, right) -> {
+                right.forEach((group, accumulator) -> left.merge(group, accumulator, BalanceAccumulator::merge));
+                return left;
+            },
+            Collector.Characteristics.UNORDERED));
+
+        Map<String, BalanceSummary> summaries = new LinkedHashMap<>();
+        accumulators.forEach((group, accumulator) -> summaries.put(group, accumulator.toSummary()));
+        return summaries;
+    }
+
+    private static Function<AccountResponse, String> groupKey(String groupBy) {
+        if ("type".equalsIgnoreCase(groupBy)) {
+            return account -> account.getAccountType() != null ? account.getAccountType() : "unknown";
+        }
+        if ("currency".equalsIgnoreCase(groupBy)) {
+            return account -> account.getCurrency() != null ? account.getCurrency() : "unknown";
+        }
+        return null;
+    }
+
+    private static final class BalanceAccumulator {
+        private long count;
+        private double sum;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        void add(double balance) {
+            count++;
+            sum += balance;
+            min = Math.min(min, balance);
+            max = Math.max(max, balance);
+        }
+
+        BalanceAccumulator merge(BalanceAccumulator other) {
+            count += other.count;
+            sum += other.sum;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            return this;
+        }
+
+        BalanceSummary toSummary() {
+            return new BalanceSummary(count, sum, min, max);
+        }
+    }
 }
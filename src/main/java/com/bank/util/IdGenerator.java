@@ -0,0 +1,80 @@
+package com.bank.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-ordered unique id generator
+ * Snowflake layout in a positive long: 41 bits of milliseconds since 2024-01-01,
+ * 10 bits of node id and a 12-bit per-millisecond sequence. The last timestamp
+ * and sequence share one AtomicLong advanced by CAS, so generation never locks.
+ * When a millisecond's sequence runs out the generator borrows the next
+ * millisecond instead of spinning, and a clock that steps back is ignored
+ * until it catches up, so ids stay unique and increasing per node.
+ * Uniqueness across nodes rests on each node having its own node id, so
+ * bank.ids.node-id must be set to a distinct value in 0..1023 per instance.
+ */
+@Component
+public class IdGenerator {
+
+    private static final long EPOCH_MILLIS = 1704067200000L;
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    // Crockford base32: no I, L, O or U, so ids survive being read aloud or retyped
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ENCODED_LENGTH = 13;
+
+    // Negative means not configured
+    @Value("${bank.ids.node-id:-1}")
+    private long configuredNodeId;
+
+    private long nodeId;
+
+    // Packed (timestamp << SEQUENCE_BITS) | sequence of the last id handed out
+    private final AtomicLong state = new AtomicLong();
+
+    @PostConstruct
+    void resolveNodeId() {
+        // A derived or wrapped id could silently match another node's and repeat its ids
+        if (configuredNodeId < 0 || configuredNodeId > MAX_NODE_ID) {
+            throw new IllegalStateException("bank.ids.node-id must be set to a value between 0 and "
+                + MAX_NODE_ID + " that is unique to this instance, got " + configuredNodeId);
+        }
+        nodeId = configuredNodeId;
+    }
+
+    public long nextId() {
+        while (true) {
+            long last = state.get();
+            long now = System.currentTimeMillis() - EPOCH_MILLIS;
+            long next = now > (last >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : last + 1;
+            if (state.compareAndSet(last, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * Fixed-width 13 character encoding, so string order matches numeric order
+     */
+    public String nextId(String prefix) {
+        return prefix + encode(nextId());
+    }
+
+    public static String encode(long id) {
+        char[] chars = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+}
@@ -1,8 +1,10 @@
 package com.bank.util;
 
 import com.bank.dto.AccountResponse;
+import com.bank.dto.AuditLogEntry;
 import org.springframework.stereotype.Component;
 
+import java.time.Instant;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
@@ -54,6 +56,45 @@ public class ReportHelper {
         return actionType.toUpperCase();
     }
 
+    public static final String AUDIT_CSV_HEADER = "id,timestamp,user_id,action,details\r\n";
+
+    /**
+     * One RFC 4180 CSV line for an audit entry, timestamp as an ISO-8601 instant
+     * at full precision. Text cells that a spreadsheet would evaluate as a
+     * formula get a leading apostrophe, since details carry user input
+     */
+    public String toCsvLine(AuditLogEntry entry) {
+        StringBuilder line = new StringBuilder(96);
+        line.append(entry.getId()).append(',');
+        if (entry.timestampMillis() != AuditLogEntry.NO_TIMESTAMP) {
+            line.append(Instant.ofEpochMilli(entry.timestampMillis()).plusNanos(entry.subMillisNanos()));
+        }
+        line.append(',');
+        appendCsvField(line, entry.getUserId());
+        line.append(',');
+        appendCsvField(line, entry.getAction());
+        line.append(',');
+        appendCsvField(line, entry.getDetails());
+        return line.append("\r\n").toString();
+    }
+
+    // Leading characters that make spreadsheets treat a cell as a formula
+    private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+    private static void appendCsvField(StringBuilder line, String value) {
+        if (value == null) {
+            return;
+        }
+        if (!value.isEmpty() && FORMULA_PREFIXES.indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            line.append(value);
+            return;
+        }
+        line.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
     /**
      * Generate report metadata
      */